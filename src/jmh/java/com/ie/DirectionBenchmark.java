@@ -0,0 +1,212 @@
+package com.ie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+
+/**
+ * Cost of turning and stepping -
+ * - turn : the rotation table lookups of {@code Direction}
+ * - leftRight : single LEFT and RIGHT turns with the rotation tables
+ * - walk : executing a script of random MOVE, LEFT and RIGHT
+ *   commands one at a time, with 4 or 8 directions
+ *
+ * The *Switch benchmarks are the baseline, the switch based turnLeft,
+ * turnRight and move the tables replaced, on the same turns and script.
+ * They only know the 4 directions, so compare them with diagonal=false.
+ *
+ * @author sundeep
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DirectionBenchmark {
+
+    private static final int TURNS = 4096;
+    private static final Command[] COMMANDS = Command.values();
+
+    @Param({ "false", "true" })
+    public boolean diagonal;
+
+    private final int[] turns = new int[TURNS];
+    private Grid grid;
+    private Program walk;
+    // The walk as MOVE, LEFT and RIGHT ordinals, RIGHT 3 being 3 RIGHTs
+    private int[] switchWalk;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < TURNS; i++) {
+            turns[i] = random.nextInt(16) - 8;
+        }
+        grid = new Grid(1000, 1000, diagonal);
+        List<String> script = new ArrayList<String>();
+        List<Command> commands = new ArrayList<Command>();
+        script.add(diagonal ? "PLACE 500,500,NORTHEAST" : "PLACE 500,500,NORTH");
+        String[] cmds = { "MOVE", "MOVE", "LEFT", "MOVE", "RIGHT", "RIGHT 3" };
+        for (int i = 0; i < TURNS; i++) {
+            String cmd = cmds[random.nextInt(cmds.length)];
+            script.add(cmd);
+            for (int n = cmd.equals("RIGHT 3") ? 3 : 1; n > 0; n--) {
+                commands.add(Command.valueOf(cmd.split(" ")[0]));
+            }
+        }
+        walk = PacmanSimulator.compile(script, grid);
+        switchWalk = new int[commands.size()];
+        for (int i = 0; i < switchWalk.length; i++) {
+            switchWalk[i] = commands.get(i).ordinal();
+        }
+    }
+
+    @Benchmark
+    public Direction turn() {
+        Direction d = Direction.NORTH;
+        for (int i = 0; i < TURNS; i++) {
+            d = d.turn(turns[i], diagonal);
+        }
+        return d;
+    }
+
+    @Benchmark
+    public Direction leftRight() {
+        Direction d = Direction.NORTH;
+        for (int i = 0; i < TURNS; i++) {
+            d = turns[i] < 0 ? d.turnLeft() : d.turnRight();
+        }
+        return d;
+    }
+
+    @Benchmark
+    public SwitchDirection leftRightSwitch() {
+        SwitchDirection d = SwitchDirection.NORTH;
+        for (int i = 0; i < TURNS; i++) {
+            d = turns[i] < 0 ? d.turnLeft(d) : d.turnRight(d);
+        }
+        return d;
+    }
+
+    @Benchmark
+    public SimulationResult walk() {
+        SimulationResult result = new SimulationResult();
+        Pacman pacman = new Pacman(grid, result);
+        pacman.run(walk);
+        pacman.complete();
+        return result;
+    }
+
+    /**
+     * The walk executed as it was before the rotation tables, from PLACE 500,500,NORTH
+     */
+    @Benchmark
+    public int walkSwitch() {
+        int size = grid.getWidth();
+        int xpos = 500, ypos = 500, ignored = 0;
+        SwitchDirection curDir = SwitchDirection.NORTH;
+        for (int cmd : switchWalk) {
+            switch (COMMANDS[cmd]) {
+                case MOVE:
+                    boolean beyondGrid = false;
+                    if ((SwitchDirection.EAST.equals(curDir) || SwitchDirection.WEST.equals(curDir)) && isBeyondGrid(xpos, curDir, size)) {
+                        beyondGrid = true;
+                    }
+                    if ((SwitchDirection.NORTH.equals(curDir) || SwitchDirection.SOUTH.equals(curDir)) && isBeyondGrid(ypos, curDir, size)) {
+                        beyondGrid = true;
+                    }
+                    if (beyondGrid) {
+                        ignored++;
+                        continue;
+                    }
+                    switch (curDir) {
+                        case EAST:
+                            xpos++;
+                            break;
+                        case WEST:
+                            xpos--;
+                            break;
+                        case NORTH:
+                            ypos++;
+                            break;
+                        case SOUTH:
+                            ypos--;
+                            break;
+                        default:
+                            break;
+                    }
+                    break;
+
+                case LEFT:
+                    curDir = curDir.turnLeft(curDir);
+                    break;
+
+                case RIGHT:
+                    curDir = curDir.turnRight(curDir);
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        return xpos * 31 + ypos + curDir.ordinal() + ignored;
+    }
+
+    private static boolean isBeyondGrid(int pos, SwitchDirection curDir, int size) {
+        if ((SwitchDirection.EAST.equals(curDir) || SwitchDirection.NORTH.equals(curDir)) && ++pos > size) {
+            return true;
+        }
+        if ((SwitchDirection.WEST.equals(curDir) || SwitchDirection.SOUTH.equals(curDir)) && --pos < 0) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Direction as it was before the rotation tables
+     */
+    public enum SwitchDirection {
+        EAST,
+        WEST,
+        NORTH,
+        SOUTH;
+
+        SwitchDirection turnLeft(SwitchDirection d) {
+            switch (d) {
+                case EAST:  return SwitchDirection.NORTH;
+                case WEST:  return SwitchDirection.SOUTH;
+                case NORTH:  return SwitchDirection.WEST;
+                case SOUTH:  return SwitchDirection.EAST;
+            }
+            return null;
+        }
+
+        SwitchDirection turnRight(SwitchDirection d) {
+            switch (d) {
+                case EAST:  return SwitchDirection.SOUTH;
+                case WEST:  return SwitchDirection.NORTH;
+                case NORTH:  return SwitchDirection.EAST;
+                case SOUTH:  return SwitchDirection.WEST;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.ie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of running many independent scenarios, repeating the ones in
+ * {@code Pacman.txt} -
+ * - sequential : one simulation after the other on the calling thread
+ * - engine : {@link SimulationEngine} with a thread per core
+ * - batch : {@link BatchRunner} over a memory mapped scenario file
+ * - replay : {@link BatchRunner} over the same scenarios converted to a binary trace
+ *
+ * @author sundeep
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScenarioBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int scenarios;
+
+    private List<List<String>> workload;
+    private SimulationEngine engine;
+    private Path file;
+    private Path trace;
+    private final WritableByteChannel sink = new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer src) {
+            int len = src.remaining();
+            src.position(src.limit());
+            return len;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup
+    public void setup() throws IOException {
+        workload = Workloads.scenarios(scenarios);
+        engine = new SimulationEngine();
+        file = Files.createTempFile("scenarios", ".txt");
+        Files.write(file, Workloads.toBytes(workload));
+        trace = Files.createTempFile("scenarios", ".trace");
+        TraceWriter.convert(file, trace, Grid.DEFAULT);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        engine.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(trace);
+    }
+
+    @Benchmark
+    public int sequential() {
+        int reports = 0;
+        for (List<String> scenario : workload) {
+            reports += PacmanSimulator.simulate(scenario).getReportCount();
+        }
+        return reports;
+    }
+
+    @Benchmark
+    public List<SimulationResult> engine() {
+        return engine.simulate(workload);
+    }
+
+    @Benchmark
+    public long batch() throws IOException {
+        return new BatchRunner().run(file, sink);
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+        return new BatchRunner().replay(trace, sink);
+    }
+}
@@ -0,0 +1,150 @@
+package com.ie;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of each stage of a single simulation, for scripts of increasing
+ * length on a small and a huge grid -
+ * - sanitize : validating and compiling the commands from Strings
+ * - sanitizePlace : same, for a script of only PLACE commands
+ * - lex : compiling the same commands from bytes
+ * - execute : running the compiled commands, as compiled and run-length encoded
+ * - pipeline : the whole simulation, collecting the outcome as primitives
+ * - consolePipeline : the whole simulation, formatting the console output
+ * - singlePass : the whole simulation in a single pass over the commands
+ *
+ * Run with {@code -prof gc} to get the allocation rate of each stage.
+ *
+ * @author sundeep
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+
+    @Param({ "30", "10000", "1000000" })
+    public int commands;
+
+    @Param({ "5", "1000000000" })
+    public int gridSize;
+
+    private Grid grid;
+    private List<String> script;
+    private List<String> places;
+    private Program program;
+    private Program compressed;
+    private final Program lexed = new Program(1024);
+    private ByteBuffer bytes;
+    private final CommandLexer.Bytes view = new CommandLexer.Bytes();
+    private int[] starts;
+    private int[] ends;
+    private PrintStream console;
+
+    @Setup
+    public void setup() {
+        grid = new Grid(gridSize, gridSize);
+        script = Workloads.script(commands, grid);
+        places = Workloads.places(commands);
+        program = PacmanSimulator.compile(script, grid);
+        compressed = PacmanSimulator.compile(script, grid).compress();
+
+        byte[] line = String.join(":::", script).getBytes(StandardCharsets.US_ASCII);
+        bytes = ByteBuffer.allocateDirect(line.length);
+        bytes.put(line);
+        view.wrap(bytes);
+        starts = new int[script.size()];
+        ends = new int[script.size()];
+        int at = 0;
+        for (int i = 0; i < script.size(); i++) {
+            starts[i] = at;
+            at += script.get(i).length();
+            ends[i] = at;
+            at += 3;
+        }
+        console = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    @Benchmark
+    public Program sanitize() {
+        return PacmanSimulator.compile(script, grid);
+    }
+
+    @Benchmark
+    public Program sanitizePlace() {
+        return PacmanSimulator.compile(places, grid);
+    }
+
+    @Benchmark
+    public Program lex() {
+        lexed.clear();
+        boolean isPlaced = false;
+        for (int i = 0; i < starts.length; i++) {
+            isPlaced |= CommandLexer.compile(view, starts[i], ends[i], isPlaced, grid, lexed) == CommandLexer.ACCEPTED;
+        }
+        return lexed;
+    }
+
+    @Benchmark
+    public SimulationResult execute() {
+        return execute(program);
+    }
+
+    @Benchmark
+    public SimulationResult executeCompressed() {
+        return execute(compressed);
+    }
+
+    @Benchmark
+    public SimulationResult pipeline() {
+        return PacmanSimulator.simulate(script, grid);
+    }
+
+    @Benchmark
+    public SimulationResult singlePass() {
+        SimulationResult result = new SimulationResult();
+        PacmanSimulator.runSinglePass(script, grid, result);
+        return result;
+    }
+
+    @Benchmark
+    public void consolePipeline() {
+        PacmanSimulator.runPacmanSimulator(script, grid, new ConsoleListener(console));
+    }
+
+    private SimulationResult execute(Program program) {
+        SimulationResult result = new SimulationResult();
+        Pacman pacman = new Pacman(grid, result);
+        pacman.run(program);
+        pacman.complete();
+        return result;
+    }
+}
@@ -0,0 +1,121 @@
+package com.ie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Workloads for the benchmarks, generated from the scenarios in
+ * {@code Pacman.txt} -
+ * - a script of any length, repeating the commands of all the scenarios
+ *   after an initial PLACE, so valid and invalid commands are mixed
+ * - any no of scenarios, repeating the scenarios of the file
+ *
+ * @author sundeep
+ *
+ */
+final class Workloads {
+
+    private static final List<List<String>> SCENARIOS = load();
+
+    private Workloads() {
+    }
+
+    /**
+     * The scenarios of {@code Pacman.txt}, one list of commands per line
+     */
+    static List<List<String>> scenarios() {
+        return SCENARIOS;
+    }
+
+    /**
+     * The given no of scenarios, cycling through {@code Pacman.txt}
+     */
+    static List<List<String>> scenarios(int count) {
+        List<List<String>> scenarios = new ArrayList<List<String>>(count);
+        for (int i = 0; i < count; i++) {
+            scenarios.add(SCENARIOS.get(i % SCENARIOS.size()));
+        }
+        return scenarios;
+    }
+
+    /**
+     * A script of the given no of commands. The PLACE commands of the
+     * scenarios are moved to the middle of the grid, so long scripts on
+     * large grids do not just run into the edges
+     */
+    static List<String> script(int commands, Grid grid) {
+        List<String> script = new ArrayList<String>(commands);
+        script.add(String.format("PLACE %d,%d,NORTH", grid.getWidth() / 2, grid.getHeight() / 2));
+        while (script.size() < commands) {
+            for (List<String> scenario : SCENARIOS) {
+                for (String cmd : scenario) {
+                    if (script.size() == commands) {
+                        return script;
+                    }
+                    if (!cmd.trim().toUpperCase().startsWith("PLACE")) {
+                        script.add(cmd);
+                    }
+                }
+            }
+        }
+        return script;
+    }
+
+    /**
+     * A script of the given no of PLACE commands, all of
+     * the PLACE commands of the scenarios in turn
+     */
+    static List<String> places(int commands) {
+        List<String> places = new ArrayList<String>();
+        for (List<String> scenario : SCENARIOS) {
+            for (String cmd : scenario) {
+                if (cmd.trim().toUpperCase().startsWith("PLACE")) {
+                    places.add(cmd);
+                }
+            }
+        }
+        List<String> script = new ArrayList<String>(commands);
+        for (int i = 0; i < commands; i++) {
+            script.add(places.get(i % places.size()));
+        }
+        return script;
+    }
+
+    /**
+     * The script as the lines of a scenario file, one scenario
+     * per line with the commands separated by ":::"
+     */
+    static byte[] toBytes(List<List<String>> scenarios) {
+        StringBuilder sb = new StringBuilder();
+        for (List<String> scenario : scenarios) {
+            sb.append(String.join(":::", scenario)).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static List<List<String>> load() {
+        List<List<String>> scenarios = new ArrayList<List<String>>();
+        try (InputStream in = Workloads.class.getResourceAsStream("/Pacman.txt")) {
+            if (in == null) {
+                throw new IllegalStateException("Pacman.txt is not on the classpath");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    scenarios.add(Arrays.asList(line.split(":::")));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return scenarios;
+    }
+}
@@ -0,0 +1,210 @@
+package com.ie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Runs a file of scenarios, one scenario per line with the commands
+ * separated by {@code :::}, as in {@code src/test/resources/Pacman.txt}.
+ *
+ * The file is memory mapped in windows and the commands are compiled
+ * straight from the mapped bytes. For every scenario one line is written -
+ * - "Output: x, y, F" for the last REPORT of the scenario
+ * - "Output: NONE" if the scenario did not REPORT
+ *
+ * @author sundeep
+ *
+ */
+public final class BatchRunner {
+
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+    // Longest result line of a scenario
+    static final int MAX_RESULT_SIZE = 64;
+
+    private static final byte[] OUTPUT = "Output: ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NONE = "NONE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEPARATOR = ", ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] DIRECTION_NAMES = new byte[PacmanSimulator.Direction.values().length][];
+    static {
+        for (PacmanSimulator.Direction d : PacmanSimulator.Direction.values()) {
+            DIRECTION_NAMES[d.ordinal()] = d.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final int windowSize;
+    private final Grid grid;
+    private final Program program = new Program(256);
+    private final CommandLexer.Bytes bytes = new CommandLexer.Bytes();
+    private final LastReport report = new LastReport();
+    private final Pacman pacman;
+    private final ByteBuffer out = ByteBuffer.allocateDirect(1 << 16);
+
+    public BatchRunner() {
+        this(Grid.DEFAULT);
+    }
+
+    /**
+     * Runs all the scenarios on the given grid
+     */
+    public BatchRunner(Grid grid) {
+        this(grid, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * The window size limits the amount of the file mapped at a time,
+     * a single scenario has to fit in a window
+     */
+    BatchRunner(Grid grid, int windowSize) {
+        this.grid = grid;
+        this.windowSize = windowSize;
+        this.pacman = new Pacman(grid, report);
+    }
+
+    /**
+     * Runs all the scenarios in the input file and writes the results
+     * to the given channel. Returns the no of scenarios run
+     */
+    public long run(Path input, WritableByteChannel output) throws IOException {
+        long scenarios = 0;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long pos = 0;
+            while (pos < size) {
+                int len = (int) Math.min(windowSize, size - pos);
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                int lineStart = 0;
+                for (int i = 0; i < len; i++) {
+                    if (buf.get(i) == '\n') {
+                        runScenario(buf, lineStart, i, output);
+                        scenarios++;
+                        lineStart = i + 1;
+                    }
+                }
+                if (pos + len == size) {
+                    if (lineStart < len) {
+                        runScenario(buf, lineStart, len, output);
+                        scenarios++;
+                    }
+                    pos = size;
+                } else if (lineStart == 0) {
+                    throw new IOException(String.format("Scenario at offset %d is longer than the window size [%d]", pos, windowSize));
+                } else {
+                    pos += lineStart;
+                }
+            }
+        }
+        flush(output);
+        return scenarios;
+    }
+
+    private void runScenario(ByteBuffer buf, int from, int to, WritableByteChannel output) throws IOException {
+        if (out.remaining() < MAX_RESULT_SIZE) {
+            flush(output);
+        }
+        runScenario(buf, from, to, out);
+    }
+
+    /**
+     * Compiles and executes the scenario held in buf[from, to), putting
+     * its result line in the given buffer, which needs at least
+     * {@link #MAX_RESULT_SIZE} bytes free
+     */
+    void runScenario(ByteBuffer buf, int from, int to, ByteBuffer result) {
+        program.clear();
+        CommandLexer.compileScenario(bytes.wrap(buf), from, to, grid, program);
+        runProgram(result);
+    }
+
+    /**
+     * Replays all the scenarios of a trace written by {@link TraceWriter},
+     * writing the same results as running the scenarios it was converted
+     * from. The trace has to be for the grid of this runner. Returns the
+     * no of scenarios run
+     */
+    public long replay(Path trace, WritableByteChannel output) throws IOException {
+        try (TraceReader reader = new TraceReader(trace)) {
+            if (!reader.isFor(grid)) {
+                throw new IOException(String.format("Trace %s is for a %s grid%s, not %s", trace, reader.getGrid(),
+                        reader.hasWalls() ? " with walls" : "", grid));
+            }
+            long scenarios = 0;
+            while (reader.next(program)) {
+                if (out.remaining() < MAX_RESULT_SIZE) {
+                    flush(output);
+                }
+                runProgram(out);
+                scenarios++;
+            }
+            flush(output);
+            return scenarios;
+        }
+    }
+
+    /**
+     * Executes the compiled scenario, putting its result line in the given buffer
+     */
+    private void runProgram(ByteBuffer result) {
+        report.reports = 0;
+        pacman.reset();
+        pacman.run(program.compress());
+        writeResult(result);
+    }
+
+    private void writeResult(ByteBuffer out) {
+        out.put(OUTPUT);
+        if (report.reports == 0) {
+            out.put(NONE);
+        } else {
+            putInt(out, report.xpos);
+            out.put(SEPARATOR);
+            putInt(out, report.ypos);
+            out.put(SEPARATOR);
+            out.put(DIRECTION_NAMES[report.dir.ordinal()]);
+        }
+        out.put((byte) '\n');
+    }
+
+    /**
+     * Writes a coordinate, which is never negative
+     */
+    private static void putInt(ByteBuffer out, int value) {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private void flush(WritableByteChannel output) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            output.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Keeps the position of the last REPORT of a scenario
+     */
+    private static final class LastReport implements SimulationListener {
+
+        private int reports, xpos, ypos;
+        private PacmanSimulator.Direction dir;
+
+        @Override
+        public void onReport(int xpos, int ypos, PacmanSimulator.Direction dir) {
+            this.reports++;
+            this.xpos = xpos;
+            this.ypos = ypos;
+            this.dir = dir;
+        }
+    }
+}
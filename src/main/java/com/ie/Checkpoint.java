@@ -0,0 +1,164 @@
+package com.ie;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Periodic checkpoints of a streaming simulation, so a simulation which
+ * dies can resume from the latest checkpoint against the same input -
+ * - a checkpoint holds the no of input lines consumed and the simulator state
+ * - a checkpoint is written every interval commands, through a FileChannel
+ * - the file has two slots written in turn, each with a sequence no and a
+ *   CRC, so a write torn by a crash leaves the previous checkpoint intact
+ * - the file is emptied once the whole input is processed
+ *
+ * A larger interval writes less often, at the cost of replaying more
+ * commands on resume. Each checkpoint is forced to the disk unless
+ * sync is off, in which case it only survives the process dying.
+ *
+ * @author sundeep
+ *
+ */
+public final class Checkpoint implements Closeable {
+
+    public static final int DEFAULT_INTERVAL = 10000;
+
+    // "PCK1"
+    private static final int MAGIC = 0x50434b31;
+    private static final int SLOT_SIZE = 128;
+    // magic, sequence no, offset and no of ints of state, followed by the state and the CRC
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 4;
+    private static final int MAX_STATE = (SLOT_SIZE - HEADER_SIZE - 4) / 4;
+
+    private final Path file;
+    private final int interval;
+    private final boolean sync;
+    private final FileChannel channel;
+    private final ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE);
+    private final CRC32 crc = new CRC32();
+    private long sequence;
+    private long saved;
+
+    public Checkpoint(Path file, int interval) throws IOException {
+        this(file, interval, true);
+    }
+
+    public Checkpoint(Path file, int interval, boolean sync) throws IOException {
+        if (interval < 1) {
+            throw new IllegalArgumentException(String.format("Checkpoint interval [%d] must be at least 1", interval));
+        }
+        this.file = file;
+        this.interval = interval;
+        this.sync = sync;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * No of checkpoints written so far
+     */
+    public long getSaved() {
+        return saved;
+    }
+
+    /**
+     * Whether a checkpoint is due after the given no of commands
+     */
+    boolean isDue(long commands) {
+        return commands % interval == 0;
+    }
+
+    /**
+     * Writes a checkpoint of the given state, taken after the given
+     * no of input lines, over the older of the two checkpoints
+     */
+    void save(long offset, int[] state) throws IOException {
+        if (state.length > MAX_STATE) {
+            throw new IllegalArgumentException(String.format("State of [%d] ints is larger than a checkpoint [%d]", state.length, MAX_STATE));
+        }
+        sequence++;
+        slot.clear();
+        slot.putInt(MAGIC).putLong(sequence).putLong(offset).putInt(state.length);
+        for (int value : state) {
+            slot.putInt(value);
+        }
+        crc.reset();
+        crc.update(slot.array(), 0, slot.position());
+        slot.putInt((int) crc.getValue());
+        slot.flip();
+        long at = (sequence & 1) * SLOT_SIZE;
+        while (slot.hasRemaining()) {
+            at += channel.write(slot, at);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+        saved++;
+    }
+
+    /**
+     * Copies the state of the latest valid checkpoint into the given
+     * array, returning the no of input lines it was taken after.
+     * Returns -1 if there is no valid checkpoint of that size
+     */
+    long load(int[] state) throws IOException {
+        long latest = 0, offset = -1;
+        for (int i = 0; i < 2; i++) {
+            slot.clear();
+            long at = i * SLOT_SIZE;
+            while (slot.hasRemaining() && channel.read(slot, at + slot.position()) > 0) {
+                continue;
+            }
+            slot.flip();
+            if (slot.remaining() < HEADER_SIZE + state.length * 4 + 4 || slot.getInt() != MAGIC) {
+                continue;
+            }
+            long seq = slot.getLong();
+            long off = slot.getLong();
+            if (slot.getInt() != state.length || seq <= latest) {
+                continue;
+            }
+            int end = HEADER_SIZE + state.length * 4;
+            crc.reset();
+            crc.update(slot.array(), 0, end);
+            if (slot.getInt(end) != (int) crc.getValue()) {
+                continue;
+            }
+            for (int n = 0; n < state.length; n++) {
+                state[n] = slot.getInt();
+            }
+            latest = seq;
+            offset = off;
+        }
+        sequence = latest;
+        return offset;
+    }
+
+    /**
+     * Drops the checkpoints, once the whole input is processed
+     */
+    void clear() throws IOException {
+        channel.truncate(0);
+        if (sync) {
+            channel.force(false);
+        }
+        sequence = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
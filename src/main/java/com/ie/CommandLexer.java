@@ -0,0 +1,346 @@
+package com.ie;
+
+import java.nio.ByteBuffer;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Compiles commands straight from characters or bytes, without creating
+ * Strings, boxing or throwing exceptions. The rules are -
+ * - leading and trailing whitespace is ignored
+ * - commands and directions are matched ignoring case (ASCII only)
+ * - if the command has a ',' the command name ends at the first space
+ * - PLACE needs exactly 3 comma separated values, trailing commas are ignored
+ * - coordinates are unsigned decimal, a sign makes them not numeric
+ * - LEFT and RIGHT can be followed by the no of turns, eg. LEFT 3
+ * - the diagonal directions are only valid on a grid which allows them
+ *
+ * Errors are reported through the result of {@link #compile}, which is
+ * {@link #ACCEPTED} or has a bit for each reason the command is rejected,
+ * see {@link #isRejected(int, Rejection)}.
+ *
+ * @author sundeep
+ *
+ */
+final class CommandLexer {
+
+    // Result of compiling a valid command
+    static final int ACCEPTED = 0;
+
+    private static final int INVALID_COMMAND = bit(Rejection.INVALID_COMMAND);
+    private static final int NOT_PLACED = bit(Rejection.NOT_PLACED);
+    private static final int PLACE_USAGE = bit(Rejection.PLACE_USAGE);
+    private static final int PLACE_NOT_NUMERIC = bit(Rejection.PLACE_NOT_NUMERIC);
+    private static final int PLACE_OUTSIDE_GRID = bit(Rejection.PLACE_OUTSIDE_GRID);
+    private static final int PLACE_ON_WALL = bit(Rejection.PLACE_ON_WALL);
+    private static final int PLACE_INVALID_DIRECTION = bit(Rejection.PLACE_INVALID_DIRECTION);
+
+    // Value of a coordinate which is not numeric, and of one too large for
+    // an int, which is negative so that it is outside any grid
+    private static final int NOT_NUMERIC = -1;
+    private static final int TOO_LARGE = Integer.MIN_VALUE;
+
+    private static final Command[] COMMANDS = Command.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final String[] COMMAND_NAMES = names(COMMANDS);
+    private static final String[] DIRECTION_NAMES = names(DIRECTIONS);
+
+    private CommandLexer() {
+    }
+
+    /**
+     * Whether the result of {@link #compile} has the given reason
+     */
+    static boolean isRejected(int result, Rejection reason) {
+        return (result & bit(reason)) != 0;
+    }
+
+    /**
+     * Compiles the command held in cmd[from, to) into the given program,
+     * given whether a valid PLACE command was already seen
+     */
+    static int compile(CharSequence cmd, int from, int to, boolean isPlaced, Grid grid, Program program) {
+        from = skipWhitespace(cmd, from, to);
+        to = trimEnd(cmd, from, to);
+        int nameEnd = to;
+        if (indexOf(cmd, from, to, ',') >= 0) {
+            nameEnd = indexOf(cmd, from, to, ' ');
+            if (nameEnd < 0) {
+                return INVALID_COMMAND;
+            }
+        }
+        int op = match(cmd, from, nameEnd, COMMAND_NAMES);
+        if (op < 0 && nameEnd == to) {
+            return compileTurn(cmd, from, to, isPlaced, program);
+        }
+        if (op < 0) {
+            return INVALID_COMMAND;
+        }
+        if (op == Program.OP_PLACE) {
+            return compilePlace(cmd, nameEnd, to, grid, program);
+        }
+        if (!isPlaced) {
+            return NOT_PLACED;
+        }
+        program.emit(COMMANDS[op]);
+        return ACCEPTED;
+    }
+
+    /**
+     * Compiles the scenario held in cmd[from, to), which has its commands
+     * separated by {@code :::}, into the given program. Rejected commands
+     * are dropped
+     */
+    static void compileScenario(CharSequence cmd, int from, int to, Grid grid, Program program) {
+        boolean isPlaced = false;
+        int start = from;
+        for (int i = from; i < to; i++) {
+            if (i + 2 < to && cmd.charAt(i) == ':' && cmd.charAt(i + 1) == ':' && cmd.charAt(i + 2) == ':') {
+                isPlaced |= compile(cmd, start, i, isPlaced, grid, program) == ACCEPTED;
+                i += 2;
+                start = i + 1;
+            }
+        }
+        compile(cmd, start, to, isPlaced, grid, program);
+    }
+
+    /**
+     * Whether the command is blank, ie. only whitespace
+     */
+    static boolean isBlank(CharSequence cmd) {
+        return skipWhitespace(cmd, 0, cmd.length()) == cmd.length();
+    }
+
+    /**
+     * Whether the command, ignoring surrounding whitespace, is the given command
+     */
+    static boolean isCommand(CharSequence cmd, Command command) {
+        int from = skipWhitespace(cmd, 0, cmd.length());
+        return match(cmd, from, trimEnd(cmd, from, cmd.length()), COMMAND_NAMES) == command.ordinal();
+    }
+
+    /**
+     * Whether the name of the given command appears anywhere in the command, ignoring case
+     */
+    static boolean contains(CharSequence cmd, Command command) {
+        String name = COMMAND_NAMES[command.ordinal()];
+        for (int at = 0; at + name.length() <= cmd.length(); at++) {
+            if (matches(cmd, at, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compiles a LEFT or RIGHT by a given amount held in cmd[from, to),
+     * which is already trimmed
+     */
+    private static int compileTurn(CharSequence cmd, int from, int to, boolean isPlaced, Program program) {
+        int nameEnd = indexOf(cmd, from, to, ' ');
+        if (nameEnd < 0) {
+            return INVALID_COMMAND;
+        }
+        int op = match(cmd, from, nameEnd, COMMAND_NAMES);
+        int at = skipWhitespace(cmd, nameEnd, to);
+        if ((op != Program.OP_LEFT && op != Program.OP_RIGHT) || at == to) {
+            return INVALID_COMMAND;
+        }
+        // Turning 8 times gets back to the same direction in either
+        // mode, so only the amount modulo 8 is kept
+        int turns = 0;
+        for (int i = at; i < to; i++) {
+            int digit = cmd.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID_COMMAND;
+            }
+            turns = (turns * 10 + digit) & Program.TURN_MASK;
+        }
+        if (!isPlaced) {
+            return NOT_PLACED;
+        }
+        program.turn(COMMANDS[op], op == Program.OP_LEFT ? -turns : turns);
+        return ACCEPTED;
+    }
+
+    /**
+     * Compiles the arguments of a PLACE command held in cmd[from, to),
+     * which starts at the space after the command name. The coordinates
+     * and the direction are checked as long as there are 3 values, so a
+     * command can be rejected for several reasons
+     */
+    private static int compilePlace(CharSequence cmd, int from, int to, Grid grid, Program program) {
+        while (to > from && cmd.charAt(to - 1) == ',') {
+            to--;
+        }
+        int first = indexOf(cmd, from, to, ',');
+        int second = first < 0 ? -1 : indexOf(cmd, first + 1, to, ',');
+        if (second < 0) {
+            return PLACE_USAGE;
+        }
+        int third = indexOf(cmd, second + 1, to, ',');
+        int result = third < 0 ? ACCEPTED : PLACE_USAGE;
+        int end = third < 0 ? to : third;
+
+        int xpos = parseCoordinate(cmd, from, first);
+        int ypos = parseCoordinate(cmd, first + 1, second);
+        if (xpos == NOT_NUMERIC || ypos == NOT_NUMERIC) {
+            result |= PLACE_NOT_NUMERIC;
+        } else if (!grid.contains(xpos, ypos)) {
+            result |= PLACE_OUTSIDE_GRID;
+        } else if (grid.isWall(xpos, ypos)) {
+            result |= PLACE_ON_WALL;
+        }
+        int dirFrom = skipWhitespace(cmd, second + 1, end);
+        int dir = match(cmd, dirFrom, trimEnd(cmd, dirFrom, end), DIRECTION_NAMES);
+        if (dir < 0 || (DIRECTIONS[dir].isDiagonal() && !grid.isDiagonal())) {
+            result |= PLACE_INVALID_DIRECTION;
+        }
+        if (result == ACCEPTED) {
+            program.place(xpos, ypos, DIRECTIONS[dir]);
+        }
+        return result;
+    }
+
+    /**
+     * Parses a coordinate. Returns {@link #NOT_NUMERIC} if it is empty or has
+     * anything but digits, and {@link #TOO_LARGE} if it is too large for an int
+     */
+    private static int parseCoordinate(CharSequence cmd, int from, int to) {
+        from = skipWhitespace(cmd, from, to);
+        to = trimEnd(cmd, from, to);
+        if (from == to) {
+            return NOT_NUMERIC;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = cmd.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_NUMERIC;
+            }
+            if (value == TOO_LARGE || value > (Integer.MAX_VALUE - digit) / 10) {
+                value = TOO_LARGE;
+            } else {
+                value = value * 10 + digit;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the index of the name matching cmd[from, to) ignoring case,
+     * -1 if there is no match
+     */
+    private static int match(CharSequence cmd, int from, int to, String[] names) {
+        for (int n = 0; n < names.length; n++) {
+            if (names[n].length() == to - from && matches(cmd, from, names[n])) {
+                return n;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether cmd has the given upper case name at the given index, ignoring case
+     */
+    private static boolean matches(CharSequence cmd, int at, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (toUpperCase(cmd.charAt(at + i)) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence cmd, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (cmd.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(CharSequence cmd, int from, int to) {
+        while (from < to && isWhitespace(cmd.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(CharSequence cmd, int from, int to) {
+        while (to > from && isWhitespace(cmd.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    /**
+     * Same as the whitespace removed by {@link String#trim()}
+     */
+    private static boolean isWhitespace(char c) {
+        return c <= ' ';
+    }
+
+    private static char toUpperCase(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+
+    private static int bit(Rejection reason) {
+        return 1 << reason.ordinal();
+    }
+
+    private static String[] names(Enum<?>[] values) {
+        String[] names = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name();
+        }
+        return names;
+    }
+
+    /**
+     * ASCII view of the bytes of a buffer, so commands can be compiled
+     * straight from the bytes read. Wraps a buffer without copying it,
+     * and can be reused for other buffers. Bytes outside ASCII are
+     * mapped to characters which never match
+     */
+    static final class Bytes implements CharSequence {
+
+        private ByteBuffer buf;
+
+        Bytes wrap(ByteBuffer buf) {
+            this.buf = buf;
+            return this;
+        }
+
+        Bytes wrap(byte[] bytes) {
+            return wrap(ByteBuffer.wrap(bytes));
+        }
+
+        @Override
+        public int length() {
+            return buf.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buf.get(index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(length());
+            for (int i = 0; i < length(); i++) {
+                sb.append(charAt(i));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.ie;
+
+import com.ie.PacmanSimulator.Command;
+
+/**
+ * Validates, sanitizes and executes commands one at a time, so a
+ * command is fully processed before the next one is looked at and
+ * only one command is held at a time -
+ * - a rejected command is reported as soon as it is seen
+ * - a valid command is compiled and executed straight away
+ * - missing PLACE and REPORT commands are reported by {@link #finish()}
+ *
+ * @author sundeep
+ *
+ */
+final class CommandPipeline {
+
+    // No of ints taken by a saved state, the Pacman's state followed by
+    // the counters, the flags, the size of the grid and its wall checksum
+    static final int STATE_SIZE = Pacman.STATE_SIZE + 7;
+
+    private static final int HAS_PLACE = 1, HAS_REPORT = 2, IS_PLACED = 4, DIAGONAL = 8;
+
+    private final Grid grid;
+    private final SimulationListener listener;
+    private final SimulationMetrics metrics;
+    private final Program program = new Program();
+    private final Pacman pacman;
+    private boolean hasPlace, hasReport, isPlaced;
+    private int read, processed;
+
+    CommandPipeline(Grid grid, SimulationListener listener) {
+        SimulationMetrics metrics = SimulationMetrics.current();
+        if (metrics != null) {
+            listener = metrics.onScenario(listener);
+        }
+        this.grid = grid;
+        this.listener = listener;
+        this.metrics = metrics;
+        this.pacman = new Pacman(grid, listener);
+        listener.onStart(grid);
+    }
+
+    /**
+     * Processes a command
+     */
+    void accept(CharSequence cmd) {
+        read++;
+        hasPlace |= CommandLexer.contains(cmd, Command.PLACE);
+        hasReport |= CommandLexer.isCommand(cmd, Command.REPORT);
+
+        program.clear();
+        if (PacmanSimulator.sanitizeCommand(cmd, isPlaced, grid, program, listener)) {
+            isPlaced = true;
+            processed++;
+            pacman.run(program);
+            if (metrics != null) {
+                metrics.onCompiled(program);
+            }
+        }
+    }
+
+    /**
+     * No of commands processed so far, valid or not
+     */
+    int getRead() {
+        return read;
+    }
+
+    /**
+     * Copies the state of the simulation, so that it can be continued by
+     * {@link #restoreState(int[])} on another pipeline
+     */
+    void saveState(int[] state) {
+        pacman.saveState(state, 0);
+        int at = Pacman.STATE_SIZE;
+        state[at] = read;
+        state[at + 1] = processed;
+        state[at + 2] = (hasPlace ? HAS_PLACE : 0) | (hasReport ? HAS_REPORT : 0) | (isPlaced ? IS_PLACED : 0)
+                | (grid.isDiagonal() ? DIAGONAL : 0);
+        state[at + 3] = grid.getWidth();
+        state[at + 4] = grid.getHeight();
+        long walls = grid.wallChecksum();
+        state[at + 5] = (int) (walls >>> 32);
+        state[at + 6] = (int) walls;
+    }
+
+    /**
+     * Continues from a state saved by {@link #saveState(int[])}. Returns
+     * false, without changing anything, if the state is for another grid,
+     * or the same grid with other walls
+     */
+    boolean restoreState(int[] state) {
+        int at = Pacman.STATE_SIZE;
+        int flags = state[at + 2];
+        long walls = (long) state[at + 5] << 32 | (state[at + 6] & 0xffffffffL);
+        if (state[at + 3] != grid.getWidth() || state[at + 4] != grid.getHeight() || ((flags & DIAGONAL) != 0) != grid.isDiagonal()
+                || walls != grid.wallChecksum()) {
+            return false;
+        }
+        pacman.restoreState(state, 0);
+        read = state[at];
+        processed = state[at + 1];
+        hasPlace = (flags & HAS_PLACE) != 0;
+        hasReport = (flags & HAS_REPORT) != 0;
+        isPlaced = (flags & IS_PLACED) != 0;
+        return true;
+    }
+
+    void onLimitExceeded(int maxCommands) {
+        listener.onLimitExceeded(maxCommands);
+    }
+
+    /**
+     * Reports missing PLACE and REPORT commands, and
+     * the final position if any command was executed
+     */
+    void finish() {
+        if (!hasPlace) {
+            listener.onMissingCommand(Command.PLACE);
+        } else if (!hasReport) {
+            listener.onMissingCommand(Command.REPORT);
+        }
+        if (processed == 0) {
+            listener.onNothingToProcess();
+        } else {
+            pacman.complete();
+        }
+    }
+}
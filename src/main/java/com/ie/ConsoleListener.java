@@ -0,0 +1,163 @@
+package com.ie;
+
+import java.io.PrintStream;
+import java.util.List;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Prints the outcome of a simulation as human readable text.
+ * Messages are built by concatenation rather than String.format, which
+ * loads regular expressions and the Formatter, as they are all on the
+ * startup path of a short script
+ *
+ * @author sundeep
+ *
+ */
+public class ConsoleListener implements SimulationListener {
+
+    private final PrintStream out;
+    private final boolean echo;
+    private Grid grid = Grid.DEFAULT;
+
+    public ConsoleListener(PrintStream out) {
+        this(out, true);
+    }
+
+    /**
+     * When echo is off the list of valid commands is not printed
+     */
+    public ConsoleListener(PrintStream out, boolean echo) {
+        this.out = out;
+        this.echo = echo;
+    }
+
+    @Override
+    public void onStart(Grid grid) {
+        this.grid = grid;
+    }
+
+    @Override
+    public void onLimitExceeded(int maxCommands) {
+        out.println("Exceeded maximum no of commands [" + maxCommands + "]. Aborting user input. Continuing processing...");
+    }
+
+    @Override
+    public void onMissingCommand(Command command) {
+        if (command == Command.PLACE) {
+            out.println("No PLACE command in input. Aborting processing..");
+        } else {
+            out.println("No " + command + " command in input. Aborting processing...");
+        }
+    }
+
+    @Override
+    public void onRejected(Rejection reason, String token) {
+        out.println(format(reason, token));
+    }
+
+    /**
+     * The text is the same whichever way the simulation is run
+     */
+    @Override
+    public boolean isOrdered() {
+        return true;
+    }
+
+    @Override
+    public boolean isEchoEnabled() {
+        return echo;
+    }
+
+    @Override
+    public void onValidCommands(List<String> tokens) {
+        out.println("\nList of valid commands to be processed:");
+        int cnt = 1;
+        for (String cmd : tokens) {
+            out.print(cnt + "." + cmd + "      ");
+            cnt++;
+        }
+        out.println();out.println();
+    }
+
+    @Override
+    public void onNothingToProcess() {
+        out.println("Nothing to process. Aborting...");
+    }
+
+    @Override
+    public void onIgnoredMove(Rejection reason, int index, int xpos, int ypos, Direction dir) {
+        String ignored = "Ignoring commmand " + index + "." + Command.MOVE + " at [" + xpos + ", " + ypos + ", " + dir + "]";
+        if (reason == Rejection.WALL) {
+            out.println(ignored + " as Pacman runs into a wall at [" + (xpos + Direction.DX[dir.ordinal()]) + ", "
+                    + (ypos + Direction.DY[dir.ordinal()]) + "]");
+            return;
+        }
+        out.println(ignored + " as Pacman goes outside the grid[" + grid.getWidth() + "x" + grid.getHeight() + "]");
+    }
+
+    @Override
+    public void onReport(int xpos, int ypos, Direction dir) {
+        out.println("\nOutput: " + xpos + ", " + ypos + ", " + dir + "\n");
+    }
+
+    /**
+     * Formats the message for a command dropped while sanitizing
+     */
+    static String format(Rejection reason, String token) {
+        switch (reason) {
+            case INVALID_COMMAND:
+                return "Ignoring invalid command : " + token;
+            case NOT_PLACED:
+                return "Ignoring " + token + " command before a valid PLACE command";
+            case PLACE_USAGE:
+                return "Invalid PLACE command. Usage: PLACE x,y,F";
+            case PLACE_NOT_NUMERIC:
+                return "Co-ordinates [" + argument(token, 0) + ", " + argument(token, 1) + "] are not numeric. Ignoring PLACE command";
+            case PLACE_OUTSIDE_GRID:
+                return "Co-ordinates [" + number(argument(token, 0)) + ", " + number(argument(token, 1))
+                        + "] are outside the grid. Ignoring PLACE command";
+            case PLACE_ON_WALL:
+                return "Co-ordinates [" + number(argument(token, 0)) + ", " + number(argument(token, 1)) + "] are on a wall. Ignoring PLACE command";
+            case PLACE_INVALID_DIRECTION:
+                return "Direction [" + argument(token, 2) + "] is invalid. Ignoring PLACE command";
+            default:
+                return "Ignoring " + reason + " command : " + token;
+        }
+    }
+
+    /**
+     * The comma separated argument of a PLACE command at the given index,
+     * trimmed, empty if there is none. Trailing empty arguments do not
+     * count, as with String.split
+     */
+    private static String argument(String token, int index) {
+        int end = token.length();
+        while (end > 0 && token.charAt(end - 1) == ',') {
+            end--;
+        }
+        int from = Math.max(token.indexOf(' '), 0);
+        for (int i = 0; i < index; i++) {
+            from = token.indexOf(',', from) + 1;
+            if (from == 0 || from > end) {
+                return "";
+            }
+        }
+        int to = token.indexOf(',', from);
+        return token.substring(from, to < 0 || to > end ? end : to).trim();
+    }
+
+    /**
+     * Drops the leading zeros of a numeric argument, which
+     * can be too large to parse
+     */
+    private static String number(String digits) {
+        int i = 0;
+        while (i < digits.length() - 1 && digits.charAt(i) == '0') {
+            i++;
+        }
+        return digits.substring(i);
+    }
+}
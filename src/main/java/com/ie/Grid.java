@@ -0,0 +1,396 @@
+package com.ie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The grid the Pacman moves on. A grid of width x height allows the
+ * coordinates [0, width] and [0, height], both bounds included, so the
+ * largest grid has 2^31 positions on each side.
+ *
+ * A grid can allow the diagonal directions, in which case a turn is 45
+ * degrees instead of 90 degrees.
+ *
+ * A grid can have walls, loaded from a map with {@link #load(Path)} -
+ * - an ASCII map has a line per row, the first line being the top row,
+ *   with '#' for a wall and '.' for an open position
+ * - a bitmap, written by {@link #save(Path)}, has the walls as a bitset
+ * A PLACE on a wall is rejected and a MOVE into a wall is ignored, like a
+ * MOVE off the grid. The walls are kept in a long[] bitset, one bit per
+ * position row by row, so a lookup is a shift and a mask and the
+ * positions along a row are next to each other in memory.
+ *
+ * Grids are immutable and can be shared between simulations, so a map
+ * is loaded once and shared by all the simulations on it.
+ *
+ * @author sundeep
+ *
+ */
+public final class Grid {
+
+    /** The default [5x5] grid */
+    public static final Grid DEFAULT = new Grid(PacmanSimulator.GRID_SIZE, PacmanSimulator.GRID_SIZE);
+
+    // "PMP1"
+    static final int MAP_MAGIC = 0x31504d50;
+    static final int MAP_HEADER_SIZE = 4 + 4 + 4;
+    static final char WALL = '#';
+    static final char OPEN = '.';
+
+    private final int width;
+    private final int height;
+    private final boolean diagonal;
+    // One bit per position, at y * (width + 1) + x. Null if there are no walls
+    private final long[] walls;
+    private final long rowSize;
+    private final long wallCount;
+    private final long checksum;
+    private final int hash;
+
+    public Grid(int width, int height) {
+        this(width, height, false);
+    }
+
+    public Grid(int width, int height, boolean diagonal) {
+        this(width, height, diagonal, null);
+    }
+
+    /**
+     * The walls are not copied, they can not be changed afterwards
+     */
+    private Grid(int width, int height, boolean diagonal, long[] walls) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException(String.format("Grid size [%dx%d] can not be negative", width, height));
+        }
+        this.width = width;
+        this.height = height;
+        this.diagonal = diagonal;
+        this.rowSize = width + 1L;
+        long count = 0;
+        if (walls != null) {
+            for (long word : walls) {
+                count += Long.bitCount(word);
+            }
+        }
+        this.walls = count == 0 ? null : walls;
+        this.wallCount = count;
+        long sum = 0;
+        if (this.walls != null) {
+            sum = count;
+            for (long word : walls) {
+                sum = (sum ^ word) * 0x9e3779b97f4a7c15L;
+            }
+            sum = sum == 0 ? 1 : sum;
+        }
+        this.checksum = sum;
+        int hash = 31 * (31 * width + height) + (diagonal ? 1 : 0);
+        this.hash = this.walls == null ? hash : 31 * hash + Arrays.hashCode(this.walls);
+    }
+
+    /**
+     * Same size and walls as this grid, allowing the diagonal directions
+     */
+    public Grid withDiagonals() {
+        return diagonal ? this : new Grid(width, height, true, walls);
+    }
+
+    /**
+     * Grid of an ASCII map given as its rows, the first row being
+     * the top one, with '#' for a wall and '.' for an open position
+     */
+    public static Grid map(String... rows) {
+        try {
+            return parse(Arrays.asList(rows), "Map");
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads a map, either an ASCII map or a bitmap written by {@link #save(Path)}
+     */
+    public static Grid load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(MAP_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+                continue;
+            }
+            header.flip();
+            if (header.remaining() < MAP_HEADER_SIZE || header.getInt() != MAP_MAGIC) {
+                List<String> rows = new ArrayList<String>();
+                try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                    String row;
+                    while ((row = reader.readLine()) != null) {
+                        rows.add(row);
+                    }
+                }
+                return parse(rows, file.toString());
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            if (width < 0 || height < 0 || size != MAP_HEADER_SIZE + words(width, height) * 8) {
+                throw new IOException(String.format("%s is a corrupt map", file));
+            }
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            long[] walls = new long[(int) words(width, height)];
+            int word = 0;
+            while (word < walls.length) {
+                buf.clear();
+                buf.limit((int) Math.min(buf.capacity(), (walls.length - word) * 8L));
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf) < 0) {
+                        throw new IOException(String.format("%s is a corrupt map", file));
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    walls[word++] = buf.getLong();
+                }
+            }
+            long cells = (width + 1L) * (height + 1L);
+            if ((cells & 63) != 0 && (walls[walls.length - 1] >>> (cells & 63)) != 0) {
+                throw new IOException(String.format("%s is a corrupt map, it has walls outside the grid", file));
+            }
+            return new Grid(width, height, false, walls);
+        }
+    }
+
+    /**
+     * Writes the walls of this grid as a bitmap, which is read back by
+     * {@link #load(Path)}. Whether it allows the diagonal directions is not kept
+     */
+    public void save(Path file) throws IOException {
+        long words = words(width, height);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAP_MAGIC).putInt(width).putInt(height);
+            for (long word = 0; word < words; word++) {
+                if (buf.remaining() < 8) {
+                    write(channel, buf);
+                }
+                buf.putLong(walls == null ? 0 : walls[(int) word]);
+            }
+            write(channel, buf);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    /**
+     * Parses the rows of an ASCII map, which all have to be of the same
+     * length. Empty lines at the end are dropped
+     */
+    private static Grid parse(List<String> rows, String name) throws IOException {
+        while (!rows.isEmpty() && rows.get(rows.size() - 1).isEmpty()) {
+            rows = rows.subList(0, rows.size() - 1);
+        }
+        if (rows.isEmpty()) {
+            throw new IOException(String.format("%s is empty", name));
+        }
+        int columns = rows.get(0).length();
+        long[] walls = new long[(int) words(columns - 1, rows.size() - 1)];
+        for (int row = 0; row < rows.size(); row++) {
+            String line = rows.get(row);
+            if (line.length() != columns) {
+                throw new IOException(String.format("Row %d of %s has %d positions instead of %d", row + 1, name, line.length(), columns));
+            }
+            long bit = (rows.size() - 1L - row) * columns;
+            for (int x = 0; x < columns; x++, bit++) {
+                char c = line.charAt(x);
+                if (c == WALL) {
+                    walls[(int) (bit >>> 6)] |= 1L << bit;
+                } else if (c != OPEN) {
+                    throw new IOException(String.format("Row %d of %s has an invalid position '%c'. Usage: '%c' for a wall, '%c' otherwise",
+                            row + 1, name, c, WALL, OPEN));
+                }
+            }
+        }
+        return new Grid(columns - 1, rows.size() - 1, false, walls);
+    }
+
+    /**
+     * No of longs of the bitset of a grid
+     */
+    private static long words(int width, int height) {
+        long words = ((width + 1L) * (height + 1L) + 63) >>> 6;
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(String.format("Grid [%dx%d] is too large for walls", width, height));
+        }
+        return words;
+    }
+
+    /**
+     * Parses a grid size given as "WxH"
+     */
+    public static Grid valueOf(String size) {
+        int x = size.toLowerCase().indexOf('x');
+        if (x < 0) {
+            throw new IllegalArgumentException(String.format("Grid size [%s] is not valid. Usage: WxH", size));
+        }
+        return new Grid(Integer.parseInt(size.substring(0, x).trim()), Integer.parseInt(size.substring(x + 1).trim()));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Whether the diagonal directions are allowed
+     */
+    public boolean isDiagonal() {
+        return diagonal;
+    }
+
+    public boolean hasWalls() {
+        return walls != null;
+    }
+
+    public long getWallCount() {
+        return wallCount;
+    }
+
+    /**
+     * Checks if there is a wall at the given position, which has to be in the grid
+     */
+    public boolean isWall(int xpos, int ypos) {
+        if (walls == null) {
+            return false;
+        }
+        long bit = ypos * rowSize + xpos;
+        return (walls[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Checks if the given position is in the grid and not a wall
+     */
+    public boolean isOpen(int xpos, int ypos) {
+        return contains(xpos, ypos) && !isWall(xpos, ypos);
+    }
+
+    /**
+     * No of moves, up to max, from the given position in the given direction
+     * before running into a wall. The positions moved through have to be in
+     * the grid. Along a row the walls are looked up a word at a time
+     */
+    int clearance(int xpos, int ypos, int dx, int dy, int max) {
+        if (walls == null || max == 0) {
+            return max;
+        }
+        long bit = ypos * rowSize + xpos;
+        if (dy == 0) {
+            long wall = dx > 0 ? nextWall(bit + 1, bit + max) : previousWall(bit - 1, bit - max);
+            return wall < 0 ? max : (int) Math.abs(wall - bit) - 1;
+        }
+        long step = dy * rowSize + dx;
+        for (int moves = 0; moves < max; moves++) {
+            bit += step;
+            if ((walls[(int) (bit >>> 6)] & (1L << bit)) != 0) {
+                return moves;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * First wall in the bits [from, to], -1 if there is none
+     */
+    private long nextWall(long from, long to) {
+        int word = (int) (from >>> 6);
+        int last = (int) (to >>> 6);
+        long bits = walls[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word > last) {
+                return -1;
+            }
+            bits = walls[word];
+        }
+        long wall = ((long) word << 6) + Long.numberOfTrailingZeros(bits);
+        return wall <= to ? wall : -1;
+    }
+
+    /**
+     * Last wall in the bits [to, from], -1 if there is none
+     */
+    private long previousWall(long from, long to) {
+        int word = (int) (from >>> 6);
+        int last = (int) (to >>> 6);
+        long bits = walls[word] & (-1L >>> (63 - (from & 63)));
+        while (bits == 0) {
+            if (--word < last) {
+                return -1;
+            }
+            bits = walls[word];
+        }
+        long wall = ((long) word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+        return wall >= to ? wall : -1;
+    }
+
+    /**
+     * A checksum of the walls, 0 if there are none, to check that
+     * something compiled for this grid is used with the same walls
+     */
+    long wallChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Checks if a given set of coordinates are in the grid
+     */
+    public boolean contains(int xpos, int ypos) {
+        return within(xpos, width) & within(ypos, height);
+    }
+
+    /**
+     * Checks if 0 <= pos <= max. Flipping the sign bit turns the signed
+     * comparison into an unsigned one, so negative positions (including
+     * ones which overflowed) are treated as too large, without a branch
+     */
+    static boolean within(int pos, int max) {
+        return (pos ^ Integer.MIN_VALUE) <= (max ^ Integer.MIN_VALUE);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Grid)) {
+            return false;
+        }
+        Grid other = (Grid) o;
+        return width == other.width && height == other.height && diagonal == other.diagonal && hash == other.hash
+                && Arrays.equals(walls, other.walls);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return walls == null ? String.format("%dx%d", width, height) : String.format("%dx%d with %d walls", width, height, wallCount);
+    }
+}
@@ -0,0 +1,166 @@
+package com.ie;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Executes compiled programs. The position of the Pacman is kept
+ * between runs, so a long input can be executed in chunks
+ *
+ * @author sundeep
+ *
+ */
+final class Pacman {
+
+    // No of ints taken by a saved state
+    static final int STATE_SIZE = 4;
+
+    private static final Direction[] DIRECTIONS = Direction.VALUES;
+    private static final int[] DX = Direction.DX;
+    private static final int[] DY = Direction.DY;
+
+    private final Grid grid;
+    private final SimulationListener listener;
+    // Direction after n right turns, indexed by ordinal * 8 + n
+    private final int[] rotate;
+    private int xpos, ypos, curDir, cnt = 1;
+
+    Pacman(Grid grid, SimulationListener listener) {
+        this.grid = grid;
+        this.listener = listener;
+        this.rotate = grid.isDiagonal() ? Direction.ROTATE_8 : Direction.ROTATE_4;
+    }
+
+    /**
+     * Clears the position, so the Pacman can be reused for another input
+     */
+    void reset() {
+        xpos = ypos = curDir = 0;
+        cnt = 1;
+    }
+
+    /**
+     * Notifies the listener of the current position
+     */
+    void complete() {
+        listener.onComplete(xpos, ypos, DIRECTIONS[curDir]);
+    }
+
+    /**
+     * Copies the position and the index of the next command
+     * to state[at, at + STATE_SIZE)
+     */
+    void saveState(int[] state, int at) {
+        state[at] = xpos;
+        state[at + 1] = ypos;
+        state[at + 2] = curDir;
+        state[at + 3] = cnt;
+    }
+
+    /**
+     * Continues from a state copied by {@link #saveState(int[], int)}
+     */
+    void restoreState(int[] state, int at) {
+        xpos = state[at];
+        ypos = state[at + 1];
+        curDir = state[at + 2];
+        cnt = state[at + 3];
+    }
+
+    /**
+     * Executes the compiled inputs. This gets fully sanitized
+     * and validated input, so no parsing is done here
+     */
+    void run(Program program) {
+        run(program, 0, program.length());
+    }
+
+    /**
+     * Executes the commands in the words [from, to) of the program,
+     * which have to start and end at a command
+     */
+    void run(Program program, int from, int to) {
+        final SimulationListener listener = this.listener;
+        final int[] rotate = this.rotate;
+        final int[] code = program.code();
+        final int end = to;
+        final Grid grid = this.grid;
+        final int maxX = grid.getWidth(), maxY = grid.getHeight();
+        final boolean walls = grid.hasWalls();
+        int xpos = this.xpos, ypos = this.ypos, curDir = this.curDir, cnt = this.cnt, pc = from;
+        while (pc < end) {
+            int op = code[pc++];
+            switch (op & Program.OP_MASK) {
+                case Program.OP_PLACE:
+                    curDir = op >>> Program.OP_BITS;
+                    xpos = code[pc++];
+                    ypos = code[pc++];
+                    break;
+
+                case Program.OP_MOVE:
+                    int nextX = xpos + DX[curDir];
+                    int nextY = ypos + DY[curDir];
+                    if (!(Grid.within(nextX, maxX) & Grid.within(nextY, maxY))) {
+                        listener.onIgnoredMove(Rejection.OFF_GRID, cnt, xpos, ypos, DIRECTIONS[curDir]);
+                        continue;
+                    }
+                    if (walls && grid.isWall(nextX, nextY)) {
+                        listener.onIgnoredMove(Rejection.WALL, cnt, xpos, ypos, DIRECTIONS[curDir]);
+                        continue;
+                    }
+                    xpos = nextX;
+                    ypos = nextY;
+                    break;
+
+                case Program.OP_LEFT:
+                    curDir = rotate[curDir * 8 + 7];
+                    break;
+
+                case Program.OP_RIGHT:
+                    curDir = rotate[curDir * 8 + 1];
+                    break;
+
+                case Program.OP_REPORT:
+                    listener.onReport(xpos, ypos, DIRECTIONS[curDir]);
+                    break;
+
+                case Program.OP_MOVE_RUN:
+                    // Moves as far as the run goes or up to the edge of the grid or a wall,
+                    // the moves beyond are all ignored at the same position and index
+                    int moves = op >>> Program.OP_BITS;
+                    int dx = DX[curDir], dy = DY[curDir];
+                    int roomX = dx > 0 ? maxX - xpos : dx < 0 ? xpos : Integer.MAX_VALUE;
+                    int roomY = dy > 0 ? maxY - ypos : dy < 0 ? ypos : Integer.MAX_VALUE;
+                    int done = Math.min(moves, Math.min(roomX, roomY));
+                    Rejection reason = Rejection.OFF_GRID;
+                    if (walls) {
+                        int clear = grid.clearance(xpos, ypos, dx, dy, done);
+                        if (clear < done) {
+                            done = clear;
+                            reason = Rejection.WALL;
+                        }
+                    }
+                    xpos += dx * done;
+                    ypos += dy * done;
+                    cnt += done;
+                    if (done < moves) {
+                        listener.onIgnoredMoves(reason, cnt, xpos, ypos, DIRECTIONS[curDir], moves - done);
+                    }
+                    continue;
+
+                case Program.OP_TURN:
+                    curDir = rotate[curDir * 8 + Program.rightTurns(op)];
+                    cnt += Program.runLength(op);
+                    continue;
+
+                default:
+                    break;
+            }
+            cnt++;
+        }
+        this.xpos = xpos;
+        this.ypos = ypos;
+        this.curDir = curDir;
+        this.cnt = cnt;
+    }
+}
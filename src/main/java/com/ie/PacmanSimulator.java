@@ -1,10 +1,20 @@
 package com.ie;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
-import java.util.stream.Collectors;
+
+import com.ie.SimulationMetrics.Stage;
 
 /**
  * A simple command line based Pacman simulator
@@ -24,58 +34,416 @@ public class PacmanSimulator {
         REPORT;
     }
     
+    /**
+     * Reasons for which a command is ignored
+     */
+    public enum Rejection {
+        INVALID_COMMAND,
+        NOT_PLACED,
+        PLACE_USAGE,
+        PLACE_NOT_NUMERIC,
+        PLACE_OUTSIDE_GRID,
+        PLACE_ON_WALL,
+        PLACE_INVALID_DIRECTION,
+        OFF_GRID,
+        WALL,
+        COLLISION;
+    }
+
+    /**
+     * Directions the Pacman can face. The diagonal directions are
+     * only valid on a grid which allows them.
+     * Turning and moving use lookup tables indexed by the ordinal
+     */
     public enum Direction {
-        EAST,
-        WEST,
-        NORTH,
-        SOUTH;
-
-        Direction turnLeft(Direction d) {
-            switch (d) {
-                case EAST:  return Direction.NORTH; 
-                case WEST:  return Direction.SOUTH;
-                case NORTH:  return Direction.WEST;
-                case SOUTH:  return Direction.EAST;
+        EAST(1, 0, 2),
+        WEST(-1, 0, 6),
+        NORTH(0, 1, 0),
+        SOUTH(0, -1, 4),
+        NORTHEAST(1, 1, 1),
+        NORTHWEST(-1, 1, 7),
+        SOUTHEAST(1, -1, 3),
+        SOUTHWEST(-1, -1, 5);
+
+        static final Direction[] VALUES = values();
+        // Step taken by a MOVE, indexed by the ordinal
+        static final int[] DX = new int[VALUES.length];
+        static final int[] DY = new int[VALUES.length];
+        // Ordinal after n right turns, indexed by ordinal * 8 + n. A turn is
+        // 90 degrees on a 4 direction grid and 45 degrees on a diagonal grid
+        static final int[] ROTATE_4 = new int[VALUES.length * 8];
+        static final int[] ROTATE_8 = new int[VALUES.length * 8];
+        static {
+            // Ordinals by position on the compass, clockwise from NORTH
+            int[] compass = new int[8];
+            for (Direction d : VALUES) {
+                compass[d.compass] = d.ordinal();
+                DX[d.ordinal()] = d.dx;
+                DY[d.ordinal()] = d.dy;
+            }
+            for (Direction d : VALUES) {
+                for (int n = 0; n < 8; n++) {
+                    ROTATE_4[d.ordinal() * 8 + n] = compass[(d.compass + 2 * n) & 7];
+                    ROTATE_8[d.ordinal() * 8 + n] = compass[(d.compass + n) & 7];
+                }
+            }
+            for (Direction d : VALUES) {
+                d.left = VALUES[ROTATE_4[d.ordinal() * 8 + 7]];
+                d.right = VALUES[ROTATE_4[d.ordinal() * 8 + 1]];
             }
-            return null;
         }
 
-        Direction turnRight(Direction d) {
-            switch (d) {
-                case EAST:  return Direction.SOUTH; 
-                case WEST:  return Direction.NORTH;
-                case NORTH:  return Direction.EAST;
-                case SOUTH:  return Direction.WEST;
-            }
-            return null;
+        private final int dx;
+        private final int dy;
+        private final int compass;
+        // Directions after a single turn, so a turn is a single load
+        // rather than an ordinal, a table and a VALUES lookup in a row
+        private Direction left;
+        private Direction right;
+
+        private Direction(int dx, int dy, int compass) {
+            this.dx = dx;
+            this.dy = dy;
+            this.compass = compass;
+        }
+
+        public boolean isDiagonal() {
+            return dx != 0 && dy != 0;
+        }
+
+        /**
+         * Turns 90 degrees to the left
+         */
+        public Direction turnLeft() {
+            return left;
+        }
+
+        /**
+         * Turns 90 degrees to the right
+         */
+        public Direction turnRight() {
+            return right;
+        }
+
+        /**
+         * Turns right the given no of times, left if negative.
+         * Each turn is 45 degrees when diagonal, 90 degrees otherwise
+         */
+        public Direction turn(int rightTurns, boolean diagonal) {
+            return VALUES[(diagonal ? ROTATE_8 : ROTATE_4)[ordinal() * 8 + (rightTurns & 7)]];
         }
     }
     
-    private static final int GRID_SIZE = 5;
-    private static final int MAXIMUM_COMMANDS = 30;
+    static final int GRID_SIZE = 5;
+    static final int MAXIMUM_COMMANDS = 30;
+
+    private static final Rejection[] REJECTIONS = Rejection.values();
+
+    private static final SimulationListener SILENT = new SimulationListener() {
+    };
 
+    /**
+     * Reads the commands from the console. Supported arguments -
+     * - --stream : executes each command as it is read, until end of input
+     * - --max-commands=N : limits the no of commands read, 0 means no limit
+     * - --checkpoint=FILE : with --stream, checkpoints to the given file and resumes from it
+     * - --checkpoint-interval=N : no of commands between checkpoints, defaults to 10000
+     * - --batch=FILE : runs a file of scenarios, one scenario per line
+     * - --convert=FILE : converts a file of scenarios into the binary trace FILE.trace
+     * - --replay=FILE : runs the scenarios of a binary trace, like --batch
+     * - --quiet : does not list the valid commands before processing them
+     * - --grid=WxH : size of the grid, defaults to 5x5
+     * - --map=FILE : loads the grid and its walls from an ASCII map or a bitmap, instead of --grid
+     * - --diagonal : allows the diagonal directions, turns are 45 degrees
+     * - --server=PORT : runs scenarios sent to the given port on loopback, until killed
+     * - --metrics : prints the counters and stage latencies to stderr at the end
+     *
+     * An unknown or conflicting argument is reported with the usage, see {@link Options}
+     */
     public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.metrics) {
+            final SimulationMetrics metrics = SimulationMetrics.enable();
+            Runtime.getRuntime().addShutdownHook(new Thread() {
+                @Override
+                public void run() {
+                    System.err.print(metrics);
+                }
+            });
+        }
+        Grid grid = options.grid;
+        if (options.map != null) {
+            try {
+                grid = Grid.load(Paths.get(options.map));
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+        }
+        if (options.diagonal) {
+            grid = grid.withDiagonals();
+        }
+
+        switch (options.mode) {
+            case Options.SERVER:
+                try (SimulatorServer server = new SimulatorServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), options.port), grid)) {
+                    server.bind();
+                    System.out.println(String.format("Listening on %s", server.getAddress()));
+                    server.run();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+
+            case Options.CONVERT:
+                try {
+                    long scenarios = TraceWriter.convert(Paths.get(options.file), Paths.get(options.file + ".trace"), grid);
+                    System.out.println(String.format("Converted %d scenarios to %s.trace", scenarios, options.file));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+
+            case Options.REPLAY:
+                try {
+                    new BatchRunner(grid).replay(Paths.get(options.file), Channels.newChannel(System.out));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+
+            case Options.BATCH:
+                try {
+                    new BatchRunner(grid).run(Paths.get(options.file), Channels.newChannel(System.out));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+
+            case Options.STREAM:
+                try (Checkpoint checkpoint = options.checkpoint == null ? null
+                        : new Checkpoint(Paths.get(options.checkpoint), options.checkpointInterval)) {
+                    runPacmanSimulator(System.in, grid, new ConsoleListener(System.out, false), options.maxCommands, checkpoint);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                return;
+
+            default:
+                break;
+        }
+
         List<String> tokens = new ArrayList<String>();
         System.out.println("Enter the commands: ");
-        try (Scanner in = new Scanner(new BufferedInputStream(System.in))) {
-            while (in.hasNext()) {
-                if (tokens.size() >= MAXIMUM_COMMANDS) {
-                    System.out.println(String.format("Exceeded maximum no of commands [%d]. Aborting user input. Continuing processing...", MAXIMUM_COMMANDS));
-                    break;
+        try {
+            tokens = readCommands(new BufferedReader(new InputStreamReader(System.in)), options.maxCommands, System.out);
+        } catch(Exception e) {
+            e.printStackTrace();
+        }
+        System.out.println();
+        runPacmanSimulator(tokens, grid, new ConsoleListener(System.out, options.echo));
+    }
+
+    /**
+     * Arguments of {@link #main(String[])}, parsed in one pass. At most one
+     * of --stream, --server, --batch, --convert and --replay can be given,
+     * and an unknown, repeated or conflicting argument is rejected with an
+     * IllegalArgumentException. Messages are concatenated rather than
+     * formatted, to keep the startup short
+     */
+    static final class Options {
+
+        // Modes, named after the argument which selects them
+        static final String CONSOLE = "", STREAM = "--stream", SERVER = "--server", BATCH = "--batch", CONVERT = "--convert",
+                REPLAY = "--replay";
+
+        static final String USAGE = "Usage: java -jar pacman.jar [--stream | --server=PORT | --batch=FILE | --convert=FILE | --replay=FILE]"
+                + System.lineSeparator()
+                + "    [--grid=WxH | --map=FILE] [--diagonal] [--quiet] [--max-commands=N] [--checkpoint=FILE] [--checkpoint-interval=N] [--metrics]"
+                + System.lineSeparator();
+
+        String mode = CONSOLE;
+        // File of --batch, --convert or --replay
+        String file;
+        int port;
+        boolean echo = true, metrics, diagonal;
+        Grid grid = Grid.DEFAULT;
+        String map;
+        int maxCommands = MAXIMUM_COMMANDS;
+        String checkpoint;
+        int checkpointInterval = Checkpoint.DEFAULT_INTERVAL;
+
+        static Options parse(String... args) {
+            Options options = new Options();
+            List<String> seen = new ArrayList<String>();
+            String size = null;
+            boolean quiet = false, limited = false, interval = false;
+            for (String arg : args) {
+                int at = arg.indexOf('=');
+                String name = at < 0 ? arg : arg.substring(0, at);
+                String value = at < 0 ? null : arg.substring(at + 1);
+                if (seen.contains(name)) {
+                    throw new IllegalArgumentException("Argument [" + name + "] is given more than once");
+                }
+                seen.add(name);
+                switch (name) {
+                    case "--stream":
+                        noValue(name, value);
+                        options.setMode(name);
+                        break;
+                    case "--server":
+                        options.setMode(name);
+                        options.port = number(name, value);
+                        if (options.port > 0xffff) {
+                            throw new IllegalArgumentException("Port [" + value + "] is not in [0, 65535]");
+                        }
+                        break;
+                    case "--batch":
+                    case "--convert":
+                    case "--replay":
+                        options.setMode(name);
+                        options.file = value(name, value);
+                        break;
+                    case "--quiet":
+                        noValue(name, value);
+                        quiet = true;
+                        break;
+                    case "--metrics":
+                        noValue(name, value);
+                        options.metrics = true;
+                        break;
+                    case "--diagonal":
+                        noValue(name, value);
+                        options.diagonal = true;
+                        break;
+                    case "--grid":
+                        size = value(name, value);
+                        break;
+                    case "--map":
+                        options.map = value(name, value);
+                        break;
+                    case "--max-commands":
+                        options.maxCommands = number(name, value);
+                        limited = true;
+                        break;
+                    case "--checkpoint":
+                        options.checkpoint = value(name, value);
+                        break;
+                    case "--checkpoint-interval":
+                        options.checkpointInterval = number(name, value);
+                        if (options.checkpointInterval < 1) {
+                            throw new IllegalArgumentException("Checkpoint interval [" + value + "] must be at least 1");
+                        }
+                        interval = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument [" + arg + "]");
+                }
+            }
+
+            if (size != null && options.map != null) {
+                throw new IllegalArgumentException("Arguments [--grid] and [--map] can not be used together");
+            }
+            if (size != null) {
+                options.grid = Grid.valueOf(size);
+            }
+            if (quiet && !CONSOLE.equals(options.mode)) {
+                throw new IllegalArgumentException("Argument [--quiet] can not be used with [" + options.mode + "]");
+            }
+            if (limited && !CONSOLE.equals(options.mode) && !STREAM.equals(options.mode)) {
+                throw new IllegalArgumentException("Argument [--max-commands] can not be used with [" + options.mode + "]");
+            }
+            if ((options.checkpoint != null || interval) && !STREAM.equals(options.mode)) {
+                throw new IllegalArgumentException("Arguments [--checkpoint] and [--checkpoint-interval] need [--stream]");
+            }
+            options.echo = !quiet;
+            if (STREAM.equals(options.mode) && !limited) {
+                options.maxCommands = 0;
+            }
+            return options;
+        }
+
+        private void setMode(String name) {
+            if (!CONSOLE.equals(mode)) {
+                throw new IllegalArgumentException("Arguments [" + mode + "] and [" + name + "] can not be used together");
+            }
+            mode = name;
+        }
+
+        private static void noValue(String name, String value) {
+            if (value != null) {
+                throw new IllegalArgumentException("Argument [" + name + "] does not take a value");
+            }
+        }
+
+        private static String value(String name, String value) {
+            if (value == null || value.isEmpty()) {
+                throw new IllegalArgumentException("Argument [" + name + "] needs a value");
+            }
+            return value;
+        }
+
+        private static int number(String name, String value) {
+            try {
+                int n = Integer.parseInt(value(name, value));
+                if (n >= 0) {
+                    return n;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("Argument [" + name + "] needs a non negative number, not [" + value + "]");
+        }
+    }
+
+    /**
+     * Reads the commands typed at the console, up to the first REPORT, in
+     * upper case. Empty lines are dropped, and lines of whitespace are only
+     * kept if a command follows them, as a Scanner would. A BufferedReader
+     * is used instead of a Scanner, which needs regular expressions and
+     * locale data, to keep the startup short
+     */
+    static List<String> readCommands(BufferedReader in, int maxCommands, PrintStream out) throws IOException {
+        List<String> tokens = new ArrayList<String>();
+        List<String> pending = new ArrayList<String>();
+        String line;
+        while ((line = in.readLine()) != null) {
+            pending.add(line);
+            if (isWhitespace(line)) {
+                continue;
+            }
+            for (String token : pending) {
+                if (maxCommands > 0 && tokens.size() >= maxCommands) {
+                    out.println(String.format("Exceeded maximum no of commands [%d]. Aborting user input. Continuing processing...", maxCommands));
+                    return tokens;
                 }
-                String token = in.nextLine();
                 if (!token.isEmpty()) {
                     tokens.add(token.toUpperCase());
                 }
-                if ("REPORT".equals(token.toUpperCase())) {
-                    break;
-                }
             }
-        } catch(Exception e) {
-            e.printStackTrace();
+            pending.clear();
+            if ("REPORT".equals(line.toUpperCase())) {
+                break;
+            }
         }
-        System.out.println();
-        runPacmanSimulator(tokens);
+        return tokens;
+    }
+
+    private static boolean isWhitespace(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -85,259 +453,317 @@ public class PacmanSimulator {
      * - Triggers processing the commands
      */
     public static void runPacmanSimulator(List<String> cmds) {
-        List<String> tokens = cmds.stream().map(String::trim).map(String::toUpperCase).collect(Collectors.toList());
-        validateInput(tokens);
-        List<String> finalCmds = sanitizeInput(tokens);
+        runPacmanSimulator(cmds, new ConsoleListener(System.out));
+    }
 
-        if (finalCmds.isEmpty()) {
-            System.out.println("Nothing to process. Aborting...");
-            return;
-        }
+    /**
+     * Same as {@link #runPacmanSimulator(List)}, writing to the given stream.
+     * No state is shared between runs, so this can be called concurrently
+     * with a separate stream for each run
+     */
+    public static void runPacmanSimulator(List<String> cmds, PrintStream out) {
+        runPacmanSimulator(cmds, new ConsoleListener(out));
+    }
 
-        System.out.println("\nList of valid commands to be processed:");
-        int cnt = 1;
-        for (String cmd : finalCmds) {
-            System.out.print(String.format("%d.%s      ", cnt, cmd));
-            cnt++;
-        }
-        System.out.println();System.out.println();
-        
-        processCommands(finalCmds);
+    /**
+     * Runs the simulator without printing anything, returning the outcome
+     */
+    public static SimulationResult simulate(List<String> cmds) {
+        return simulate(cmds, Grid.DEFAULT);
     }
 
     /**
-     * Executes the inputs provided. This gets fully sanitized
-     * and validated input
+     * Runs the simulator on the given grid without printing anything, returning the outcome
      */
-    private static void processCommands(List<String> finalCmds) {
-        int xpos = 0, ypos = 0, cnt = 1; 
-        Direction curDir = null;
-        for (String token : finalCmds) {
-            String cmd;
-            if (token.contains(",")) {
-                cmd = token.substring(0, token.indexOf(" "));
-            } else {
-                cmd = token;
-            }
-            switch (Command.valueOf(cmd)) {
-                case PLACE:
-                    String[] coords = token.substring(token.indexOf(" ")).split(",");
-                    xpos = Integer.valueOf(coords[0].trim());
-                    ypos = Integer.valueOf(coords[1].trim());
-                    String dir = coords[2].trim();
-                    curDir = Direction.valueOf(dir);
-                    break;
-
-                case MOVE:
-                    boolean beyondGrid = false;
-                    if ((Direction.EAST.equals(curDir) || Direction.WEST.equals(curDir)) &&
-                            isBeyondGrid(xpos, curDir)) {
-                        beyondGrid = true;
-                    }
-                    if ((Direction.NORTH.equals(curDir) || Direction.SOUTH.equals(curDir)) &&
-                            isBeyondGrid(ypos, curDir)) {
-                        beyondGrid = true;
-                    }
-                    if (beyondGrid) {
-                        System.out.println(String.format("Ignoring commmand %d.%s at [%d, %d, %s] as Pacman goes outside the grid[%dx%d]", 
-                                cnt, cmd, xpos, ypos, curDir, GRID_SIZE, GRID_SIZE));
-                        continue;
-                    }
-                    switch (curDir) {
-                        case EAST:
-                            xpos++;
-                            break;
-                        case WEST:
-                            xpos--;
-                            break;
-                        case NORTH:
-                            ypos++;
-                            break;
-                        case SOUTH:
-                            ypos--;
-                            break;
-                        default:
-                            break;
-                    }
-                    break;
-
-                case LEFT:
-                    curDir = curDir.turnLeft(curDir);
-                    break;
-
-                case RIGHT:
-                    curDir = curDir.turnRight(curDir);
-                    break;
-
-                case REPORT:
-                    System.out.println(String.format("\nOutput: %d, %d, %s\n", xpos, ypos, curDir));
-                    break;
-
-                default:
-                    break;
-            }
-            cnt++;
+    public static SimulationResult simulate(List<String> cmds, Grid grid) {
+        SimulationResult result = new SimulationResult();
+        runPacmanSimulator(cmds, grid, result);
+        return result;
+    }
+
+    /**
+     * Validates and sanitizes the commands for the given grid without
+     * printing anything, returning the compiled valid commands
+     */
+    public static Program compile(List<String> cmds, Grid grid) {
+        Program program = new Program(cmds.size() + 2);
+        boolean isPlaced = false;
+        for (String cmd : cmds) {
+            isPlaced |= sanitizeCommand(cmd, isPlaced, grid, program, SILENT);
         }
+        return program;
     }
 
     /**
-     * Performs basic validation 
-     * - checks if PLACE and REPORT commands are present
-     * - limits the no of commands that can be provided (limited to 10)
+     * Runs the simulator, passing the outcome to the given listener
      */
-    private static void validateInput(List<String> tokens) {
-        if (tokens.size() > MAXIMUM_COMMANDS) {
-            System.out.println(String.format("Exceeded maximum no of commands [%d]. Aborting user input. Continuing processing...", MAXIMUM_COMMANDS));
+    public static void runPacmanSimulator(List<String> cmds, SimulationListener listener) {
+        runPacmanSimulator(cmds, Grid.DEFAULT, listener);
+    }
+
+    /**
+     * Runs the simulator on the given grid, passing the outcome to the given listener
+     */
+    public static void runPacmanSimulator(List<String> cmds, Grid grid, SimulationListener listener) {
+        SimulationMetrics metrics = SimulationMetrics.current();
+        if (metrics != null) {
+            listener = metrics.onScenario(listener);
         }
-        boolean hasPlace = false;
-        for (String token : tokens) {
-            if (token.contains("PLACE")) {
-                hasPlace = true;
-                break;
-            }
+        Program program = prepare(cmds, grid, listener, metrics);
+        if (program == null) {
+            return;
         }
-        if (!hasPlace) {
-            System.out.println("No PLACE command in input. Aborting processing..");
-            return; 
+        long start = metrics == null ? 0 : System.nanoTime();
+        Pacman pacman = new Pacman(grid, listener);
+        pacman.run(program.compress());
+        pacman.complete();
+        if (metrics != null) {
+            metrics.onStage(Stage.EXECUTE, start);
         }
-        if (!tokens.contains("REPORT")) {
-            System.out.println("No REPORT command in input. Aborting processing...");
+    }
+
+    /**
+     * Same as {@link #runPacmanSimulator(List, Grid, SimulationListener)}, taking
+     * the outcome of the valid commands from the given cache when it has them
+     */
+    public static void runPacmanSimulator(List<String> cmds, Grid grid, SimulationListener listener, SimulationCache cache) {
+        SimulationMetrics metrics = SimulationMetrics.current();
+        if (metrics != null) {
+            listener = metrics.onScenario(listener);
+        }
+        Program program = prepare(cmds, grid, listener, metrics);
+        if (program == null) {
             return;
         }
+        long start = metrics == null ? 0 : System.nanoTime();
+        cache.execute(program, grid, listener);
+        if (metrics != null) {
+            metrics.onStage(Stage.EXECUTE, start);
+        }
     }
 
     /**
-     * Sanitizes the input -
-     *      - checks if all command are valid, ignores invalid commands
-     *      - validates PLACE command
-     * Returns the final set of commands to be executed
-     * 
+     * Runs the simulator on the given grid without printing anything, returning
+     * the outcome. The outcome of the valid commands is cached
      */
-    private static List<String> sanitizeInput(List<String> tokens) {
-        List<String> finalCmds = new ArrayList<String>();
-        boolean isPlaced = false;
-        for (String token : tokens) {
-            String cmd;
-            if (token.contains(",")) {
-                cmd = token.substring(0, token.indexOf(" "));
-            } else {
-                cmd = token;
-            }
-            if (!isValidCommand(cmd)) {
-                System.out.println("Ignoring invalid command : " + token);
-                continue;
-            }
-            if (cmd.startsWith("PLACE")) {
-                if (isValidPlaceCommand(token)) {
-                    isPlaced = true;
-                } else {
-                    continue;
-                }
-            } else if (!"PLACE".equals(cmd) && !isPlaced) {
-                System.out.println("Ignoring " + token + " command before a valid PLACE command");
-                continue;
-            } 
-            finalCmds.add(token);
+    public static SimulationResult simulate(List<String> cmds, Grid grid, SimulationCache cache) {
+        SimulationResult result = new SimulationResult();
+        runPacmanSimulator(cmds, grid, result, cache);
+        return result;
+    }
+
+    /**
+     * Validates and sanitizes the commands, passing the rejected commands to
+     * the listener. Returns the compiled valid commands, null if there are none.
+     * The stages are timed if metrics are given
+     */
+    private static Program prepare(List<String> cmds, Grid grid, SimulationListener listener, SimulationMetrics metrics) {
+        long start = metrics == null ? 0 : System.nanoTime();
+        listener.onStart(grid);
+        validateInput(cmds, listener);
+        if (metrics != null) {
+            metrics.onStage(Stage.PARSE, start);
+            start = System.nanoTime();
         }
-        return finalCmds;
+        Program program = new Program(cmds.size() + 2);
+        List<String> finalCmds = sanitizeInput(cmds, grid, program, listener);
+        if (metrics != null) {
+            metrics.onStage(Stage.SANITIZE, start);
+            metrics.onCompiled(program);
+        }
+
+        if (program.isEmpty()) {
+            listener.onNothingToProcess();
+            return null;
+        }
+
+        if (finalCmds != null) {
+            listener.onValidCommands(finalCmds);
+        }
+        return program;
     }
 
     /**
-     * Checks if an input command is valid
-     * 
+     * Streaming version of the simulator. Reads one command per line and
+     * validates, sanitizes and executes each command as soon as it is read,
+     * so the memory used does not depend on the length of the input. The
+     * input is never held, so the messages are not in the order of the
+     * list version -
+     * - REPORT output is written as soon as the REPORT command is read
+     * - the list of valid commands is not echoed
+     * - missing PLACE and REPORT commands are reported at the end of input
+     * - maxCommands limits the no of commands read, 0 or less means no limit
      */
-    @SuppressWarnings("unused")
-    private static boolean isValidCommand(String command) {
-        try {
-            Command c = Command.valueOf(command);
-        } catch (IllegalArgumentException e) {
-            return false;
+    public static void runPacmanSimulator(InputStream in, PrintStream out, int maxCommands) throws IOException {
+        runPacmanSimulator(in, new ConsoleListener(out, false), maxCommands);
+        out.flush();
+    }
+
+    /**
+     * Streaming version of the simulator which reads from a channel
+     */
+    public static void runPacmanSimulator(ReadableByteChannel in, PrintStream out, int maxCommands) throws IOException {
+        runPacmanSimulator(Channels.newInputStream(in), out, maxCommands);
+    }
+
+    /**
+     * Streaming version of the simulator, passing the outcome to the given listener
+     */
+    public static void runPacmanSimulator(InputStream in, SimulationListener listener, int maxCommands) throws IOException {
+        runPacmanSimulator(in, Grid.DEFAULT, listener, maxCommands);
+    }
+
+    /**
+     * Streaming version of the simulator on the given grid, passing the outcome to the given listener
+     */
+    public static void runPacmanSimulator(InputStream in, Grid grid, SimulationListener listener, int maxCommands) throws IOException {
+        runPacmanSimulator(in, grid, listener, maxCommands, null);
+    }
+
+    /**
+     * Streaming version of the simulator which writes a checkpoint every
+     * {@link Checkpoint#getInterval()} commands. If the checkpoint file
+     * holds a checkpoint, the simulation resumes from it, skipping the
+     * input lines already processed, so the same input has to be given.
+     * The listener then gets what an uninterrupted run would have given it
+     * after the checkpoint. The checkpoint is dropped at the end of input.
+     * Without a checkpoint this is the same as the streaming version
+     */
+    public static void runPacmanSimulator(InputStream in, Grid grid, SimulationListener listener, int maxCommands, Checkpoint checkpoint)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        CommandPipeline pipeline = new CommandPipeline(grid, listener);
+        int[] state = checkpoint == null ? null : new int[CommandPipeline.STATE_SIZE];
+        long resumeAt = checkpoint == null ? -1 : checkpoint.load(state);
+        if (resumeAt >= 0 && !pipeline.restoreState(state)) {
+            throw new IOException(String.format("Checkpoint in %s is not for a %s grid", checkpoint.getFile(), grid));
+        }
+        long lines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (++lines <= resumeAt || CommandLexer.isBlank(line)) {
+                continue;
+            }
+            if (maxCommands > 0 && pipeline.getRead() >= maxCommands) {
+                pipeline.onLimitExceeded(maxCommands);
+                break;
+            }
+            pipeline.accept(line);
+            if (checkpoint != null && checkpoint.isDue(pipeline.getRead())) {
+                pipeline.saveState(state);
+                checkpoint.save(lines, state);
+            }
+        }
+        pipeline.finish();
+        if (checkpoint != null) {
+            checkpoint.clear();
         }
-        return true;
     }
-    
+
     /**
-     * Checks if the PLACE command is valid
-     * - checks if syntax of PLACE command is correct
-     * - checks if initial coordinates of PLACE command are in the grid
-     * - checks if the directions are valid
+     * Single pass version of {@link #runPacmanSimulator(List, Grid, SimulationListener)}.
+     * Each command is validated, sanitized and executed before the
+     * next one is looked at, so the input is walked once and only one command
+     * is held at a time. The events are the same, but -
+     * - events about a command come as soon as the command is processed
+     * - the limit, missing PLACE and missing REPORT events come at the end
+     * - the list of valid commands is not passed on
+     *
+     * A listener which needs the events in order, such as a ConsoleListener,
+     * is run on the list of commands instead, so it gets the same text
      */
-    private static boolean isValidPlaceCommand(String token) {
-        boolean isValid = true;
-        String[] coords = token.substring(token.indexOf(" ")).split(",");
-        if (coords.length != 3) {
-            System.out.println("Invalid PLACE command. Usage: PLACE x,y,F");
-            isValid = false;
-        }
-        if (!isNumeric(coords[0].trim()) || !isNumeric(coords[1].trim())) {
-            System.out.println(String.format("Co-ordinates [%s, %s] are not valid. Ignoring PLACE command",
-                               coords[0].trim(), coords[1].trim()));
-            isValid = false;;
-        } else {
-            int xpos = Integer.valueOf(coords[0].trim());
-            int ypos = Integer.valueOf(coords[1].trim());
-            if (!isValidCoordinates(xpos, ypos)) {
-                System.out.println(String.format("Co-ordinates [%d, %d] are outside the grid. Ignoring PLACE command", xpos, ypos));
-                isValid = false;;
+    public static void runSinglePass(Iterable<? extends CharSequence> cmds, Grid grid, SimulationListener listener) {
+        if (listener.isOrdered()) {
+            List<String> tokens = new ArrayList<String>();
+            for (CharSequence cmd : cmds) {
+                tokens.add(cmd.toString());
             }
+            runPacmanSimulator(tokens, grid, listener);
+            return;
+        }
+        CommandPipeline pipeline = new CommandPipeline(grid, listener);
+        for (CharSequence cmd : cmds) {
+            pipeline.accept(cmd);
         }
-        String dir = coords[2].trim();
-        if (!isValidDirection(dir)) {
-            System.out.println(String.format("Direction [%s] is invalid. Ignoring PLACE command", dir));
-            isValid = false;;
+        if (pipeline.getRead() > MAXIMUM_COMMANDS) {
+            pipeline.onLimitExceeded(MAXIMUM_COMMANDS);
         }
-        return isValid;
+        pipeline.finish();
     }
-    
+
     /**
-     * Checks if a given direction is valid
-     * 
+     * Performs basic validation 
+     * - checks if PLACE and REPORT commands are present
+     * - limits the no of commands that can be provided (limited to 30)
      */
-    @SuppressWarnings("unused")
-    private static boolean isValidDirection(String direction) {
-        try {
-            Direction d = Direction.valueOf(direction);
-        } catch (IllegalArgumentException e) {
-            return false;
+    private static void validateInput(List<String> tokens, SimulationListener listener) {
+        if (tokens.size() > MAXIMUM_COMMANDS) {
+            listener.onLimitExceeded(MAXIMUM_COMMANDS);
+        }
+        boolean hasPlace = false, hasReport = false;
+        for (String token : tokens) {
+            hasPlace |= CommandLexer.contains(token, Command.PLACE);
+            hasReport |= CommandLexer.isCommand(token, Command.REPORT);
+        }
+        if (!hasPlace) {
+            listener.onMissingCommand(Command.PLACE);
+            return; 
+        }
+        if (!hasReport) {
+            listener.onMissingCommand(Command.REPORT);
+            return;
         }
-        return true;
     }
-    
+
     /**
-     * Checks if a given set of coordinates are in the grid [5x5]
+     * Sanitizes the input -
+     *      - checks if all command are valid, ignores invalid commands
+     *      - validates PLACE command
+     * Compiles the valid commands into the given program. Returns them
+     * as well if the listener echoes them, null otherwise
      * 
      */
-    private static boolean isValidCoordinates(int xpos, int ypos) {
-        if (xpos < 0 || xpos > GRID_SIZE || 
-                ypos < 0 || ypos > GRID_SIZE) {
-            return false;
+    private static List<String> sanitizeInput(List<String> tokens, Grid grid, Program program, SimulationListener listener) {
+        List<String> finalCmds = listener.isEchoEnabled() ? new ArrayList<String>() : null;
+        boolean isPlaced = false;
+        for (String token : tokens) {
+            if (sanitizeCommand(token, isPlaced, grid, program, listener)) {
+                isPlaced = true;
+                if (finalCmds != null) {
+                    finalCmds.add(normalize(token));
+                }
+            }
         }
-        return true;
+        return finalCmds;
     }
 
     /**
-     * Checks whether for a given position and direction, 
-     * if the next MOVE command is valid
+     * Sanitizes a single command, given whether a valid PLACE command
+     * was already seen. A valid command is compiled into the given
+     * program and true is returned, otherwise the listener is given
+     * each reason the command is rejected for
      * 
      */
-    private static boolean isBeyondGrid(int pos, Direction curDir) {
-        if ((Direction.EAST.equals(curDir) || Direction.NORTH.equals(curDir))
-                && ++pos > GRID_SIZE) {
+    static boolean sanitizeCommand(CharSequence cmd, boolean isPlaced, Grid grid, Program program, SimulationListener listener) {
+        int result = CommandLexer.compile(cmd, 0, cmd.length(), isPlaced, grid, program);
+        if (result == CommandLexer.ACCEPTED) {
             return true;
         }
-        if ((Direction.WEST.equals(curDir) || Direction.SOUTH.equals(curDir))
-                && --pos < 0) {
-            return true;
+        String token = normalize(cmd);
+        for (Rejection reason : REJECTIONS) {
+            if (CommandLexer.isRejected(result, reason)) {
+                listener.onRejected(reason, token);
+            }
         }
         return false;
     }
-    
+
     /**
-     * Checks if given string is numeric
+     * The command as shown in messages, trimmed and in upper case
      * 
      */
-    private static boolean isNumeric(String s) {
-        return (s.chars().allMatch(Character::isDigit));
+    private static String normalize(CharSequence cmd) {
+        return cmd.toString().trim().toUpperCase();
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,539 @@
+package com.ie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+
+/**
+ * Path queries over the states (x, y, direction) of a grid, where a MOVE,
+ * LEFT or RIGHT command takes a state to the next one -
+ * - the shortest list of commands from one state to another
+ * - the states reachable from a state within k commands
+ *
+ * A MOVE which would leave the grid or run into a wall does not change
+ * the state, so it is never part of a shortest path. PLACE is not used,
+ * as it reaches any state. Walls can cut a state off from another one.
+ *
+ * On a grid with up to {@link #TABLE_STATES} states, a query is answered
+ * from a table of the distance of every state from the starting state,
+ * found by a breadth first search. The latest tables are cached, so
+ * repeated queries from a state do not search again. On a larger grid
+ * the shortest path is found by a bidirectional breadth first search over
+ * states encoded as longs, relative to the starting state, and the
+ * latest paths are cached.
+ *
+ * A finder can be shared between threads, {@link #of(Grid)} returns the
+ * shared finder of a grid. Only the finders of the latest grids are kept,
+ * a caller using many grids should keep its own finders.
+ *
+ * @author sundeep
+ *
+ */
+public final class PathFinder {
+
+    // Largest no of states of a grid searched with distance tables
+    static final int TABLE_STATES = 1 << 20;
+    // Largest no of states visited by a search on a larger grid
+    static final int MAX_STATES = 1 << 21;
+    // Farthest two states can be on a larger grid, so the relative encoding does not overflow
+    static final int MAX_DISTANCE = 1 << 24;
+
+    private static final int MAX_TABLES = 8;
+    private static final int MAX_PATHS = 1024;
+    static final int MAX_FINDERS = 16;
+    private static final Direction[] DIRECTIONS = Direction.VALUES;
+    private static final int[] DX = Direction.DX;
+    private static final int[] DY = Direction.DY;
+    // Commands which change the state, in the order they are tried
+    private static final Command[] MOVES = { Command.MOVE, Command.LEFT, Command.RIGHT };
+    private static final Map<Grid, PathFinder> FINDERS = lru(MAX_FINDERS);
+
+    // Relative encoding of a state on a larger grid
+    private static final int COORD_BITS = 29;
+    private static final long COORD_MASK = (1L << COORD_BITS) - 1;
+    private static final int BIAS = 1 << (COORD_BITS - 1);
+
+    private final Grid grid;
+    private final int directions;
+    private final int[] rotate;
+    private final boolean tables;
+    private final Map<State, int[]> distances = lru(MAX_TABLES);
+    private final Map<List<State>, List<Command>> paths = lru(MAX_PATHS);
+
+    public PathFinder(Grid grid) {
+        this(grid, (grid.getWidth() + 1L) * (grid.getHeight() + 1L) <= TABLE_STATES / (grid.isDiagonal() ? 8 : 4));
+    }
+
+    /**
+     * Uses distance tables or searches, whatever the size of the grid
+     */
+    PathFinder(Grid grid, boolean tables) {
+        this.grid = grid;
+        this.directions = grid.isDiagonal() ? 8 : 4;
+        this.rotate = grid.isDiagonal() ? Direction.ROTATE_8 : Direction.ROTATE_4;
+        this.tables = tables;
+    }
+
+    /**
+     * The shared finder of the given grid, out of the finders of the
+     * latest {@link #MAX_FINDERS} grids
+     */
+    public static PathFinder of(Grid grid) {
+        synchronized (FINDERS) {
+            return FINDERS.computeIfAbsent(grid, PathFinder::new);
+        }
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Shortest list of MOVE, LEFT and RIGHT commands which takes the Pacman
+     * from one state to the other. Returns null if walls cut the target off
+     */
+    public List<Command> shortestPath(State from, State to) {
+        check(from);
+        check(to);
+        if (tables) {
+            int[] dist = table(from);
+            return dist[index(to.x, to.y, to.dir.ordinal())] < 0 ? null : path(dist, to);
+        }
+        List<State> key = new ArrayList<State>(2);
+        key.add(from);
+        key.add(to);
+        List<Command> path;
+        synchronized (paths) {
+            path = paths.get(key);
+        }
+        if (path == null) {
+            path = search(from, to);
+            if (path == null) {
+                return null;
+            }
+            path = Collections.unmodifiableList(path);
+            synchronized (paths) {
+                paths.put(key, path);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * No of commands of the shortest path from one state to the other,
+     * -1 if walls cut the target off
+     */
+    public int distance(State from, State to) {
+        check(from);
+        check(to);
+        if (tables) {
+            return table(from)[index(to.x, to.y, to.dir.ordinal())];
+        }
+        List<Command> path = shortestPath(from, to);
+        return path == null ? -1 : path.size();
+    }
+
+    /**
+     * Shortest script from one state to the other, which places the Pacman
+     * at the first state and reports at the last one, eg.
+     * [PLACE 0,0,NORTH, MOVE, RIGHT, MOVE, REPORT]. Returns null if
+     * walls cut the target off
+     */
+    public List<String> script(State from, State to) {
+        List<Command> path = shortestPath(from, to);
+        if (path == null) {
+            return null;
+        }
+        List<String> script = new ArrayList<String>(path.size() + 2);
+        script.add(String.format("%s %d,%d,%s", Command.PLACE, from.x, from.y, from.dir));
+        for (Command cmd : path) {
+            script.add(cmd.name());
+        }
+        script.add(Command.REPORT.name());
+        return script;
+    }
+
+    /**
+     * States reachable from the given state within k commands, including the state itself
+     */
+    public Set<State> reachable(State from, int k) {
+        check(from);
+        if (k < 0) {
+            throw new IllegalArgumentException(String.format("No of commands [%d] can not be negative", k));
+        }
+        Set<State> states = new HashSet<State>();
+        if (tables) {
+            int[] dist = table(from);
+            for (int i = 0; i < dist.length; i++) {
+                if (dist[i] >= 0 && dist[i] <= k) {
+                    int d = i % directions;
+                    int y = (i / directions) % (grid.getHeight() + 1);
+                    int x = i / directions / (grid.getHeight() + 1);
+                    states.add(new State(x, y, DIRECTIONS[d]));
+                }
+            }
+            return states;
+        }
+        LongIntMap seen = new LongIntMap();
+        long[] frontier = { encode(from, from.x, from.y, from.dir.ordinal()) };
+        seen.put(frontier[0], 0);
+        for (int depth = 1; depth <= k && frontier.length > 0; depth++) {
+            frontier = expand(from, frontier, seen, depth, null, true);
+            if (seen.size > MAX_STATES) {
+                throw new IllegalArgumentException(String.format("Too many states are reachable from %s within [%d] commands", from, k));
+            }
+        }
+        for (int i = 0; i < seen.keys.length; i++) {
+            long key = seen.keys[i];
+            if (key != LongIntMap.EMPTY) {
+                states.add(new State(decodeX(from, key), decodeY(from, key), DIRECTIONS[(int) (key & 7)]));
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Distance from the given state to every state of a small grid, by index
+     */
+    private int[] table(State from) {
+        synchronized (distances) {
+            int[] dist = distances.get(from);
+            if (dist != null) {
+                return dist;
+            }
+        }
+        int height = grid.getHeight() + 1;
+        int[] dist = new int[(grid.getWidth() + 1) * height * directions];
+        Arrays.fill(dist, -1);
+        int[] queue = new int[dist.length];
+        int head = 0, tail = 0;
+        queue[tail++] = index(from.x, from.y, from.dir.ordinal());
+        dist[queue[0]] = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            int d = state % directions;
+            int y = (state / directions) % height;
+            int x = state / directions / height;
+            for (Command cmd : MOVES) {
+                int next = next(cmd, x, y, d);
+                if (next >= 0 && dist[next] < 0) {
+                    dist[next] = dist[state] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        synchronized (distances) {
+            distances.put(from, dist);
+        }
+        return dist;
+    }
+
+    /**
+     * Walks back from the target to the start of a distance table
+     */
+    private List<Command> path(int[] dist, State to) {
+        int x = to.x, y = to.y, d = to.dir.ordinal();
+        Command[] path = new Command[dist[index(x, y, d)]];
+        for (int k = path.length - 1; k >= 0; k--) {
+            for (Command cmd : MOVES) {
+                int px = x - (cmd == Command.MOVE ? DX[d] : 0);
+                int py = y - (cmd == Command.MOVE ? DY[d] : 0);
+                int pd = previous(cmd, d);
+                if (grid.isOpen(px, py) && dist[index(px, py, pd)] == k) {
+                    path[k] = cmd;
+                    x = px;
+                    y = py;
+                    d = pd;
+                    break;
+                }
+            }
+        }
+        return Collections.unmodifiableList(Arrays.asList(path));
+    }
+
+    /**
+     * Bidirectional breadth first search on a larger grid, expanding the
+     * smaller frontier a whole level at a time until the searches meet.
+     * Returns null if a search runs out of states first
+     */
+    private List<Command> search(State from, State to) {
+        long dx = Math.abs((long) to.x - from.x), dy = Math.abs((long) to.y - from.y);
+        if ((grid.isDiagonal() ? Math.max(dx, dy) : dx + dy) > MAX_DISTANCE) {
+            throw new IllegalArgumentException(String.format("States %s and %s are too far apart to search", from, to));
+        }
+        LongIntMap forward = new LongIntMap(), backward = new LongIntMap();
+        long[] forwardFrontier = { encode(from, from.x, from.y, from.dir.ordinal()) };
+        long[] backwardFrontier = { encode(from, to.x, to.y, to.dir.ordinal()) };
+        forward.put(forwardFrontier[0], 0);
+        backward.put(backwardFrontier[0], 0);
+        long[] meeting = { forward.get(backwardFrontier[0]) == 0 ? backwardFrontier[0] : LongIntMap.EMPTY, Long.MAX_VALUE };
+        int forwardDepth = 0, backwardDepth = 0;
+        while (meeting[0] == LongIntMap.EMPTY) {
+            if (forwardFrontier.length == 0 || backwardFrontier.length == 0) {
+                return null;
+            }
+            if (forwardFrontier.length <= backwardFrontier.length) {
+                forwardFrontier = expand(from, forwardFrontier, forward, ++forwardDepth, backward, true, meeting);
+            } else {
+                backwardFrontier = expand(from, backwardFrontier, backward, ++backwardDepth, forward, false, meeting);
+            }
+            if (forward.size + backward.size > MAX_STATES) {
+                throw new IllegalArgumentException(String.format("States %s and %s are too far apart to search", from, to));
+            }
+        }
+
+        // from the meeting state back to the start, then on to the target
+        long state = meeting[0];
+        List<Command> path = new ArrayList<Command>();
+        for (int k = forward.get(state) - 1; k >= 0; k--) {
+            int x = decodeX(from, state), y = decodeY(from, state), d = (int) (state & 7);
+            for (Command cmd : MOVES) {
+                int px = x - (cmd == Command.MOVE ? DX[d] : 0);
+                int py = y - (cmd == Command.MOVE ? DY[d] : 0);
+                if (grid.isOpen(px, py) && forward.get(encode(from, px, py, previous(cmd, d))) == k) {
+                    path.add(cmd);
+                    state = encode(from, px, py, previous(cmd, d));
+                    break;
+                }
+            }
+        }
+        Collections.reverse(path);
+        state = meeting[0];
+        for (int k = backward.get(state) - 1; k >= 0; k--) {
+            int x = decodeX(from, state), y = decodeY(from, state), d = (int) (state & 7);
+            for (Command cmd : MOVES) {
+                int nx = x + (cmd == Command.MOVE ? DX[d] : 0);
+                int ny = y + (cmd == Command.MOVE ? DY[d] : 0);
+                if (grid.isOpen(nx, ny) && backward.get(encode(from, nx, ny, following(cmd, d))) == k) {
+                    path.add(cmd);
+                    state = encode(from, nx, ny, following(cmd, d));
+                    break;
+                }
+            }
+        }
+        return path;
+    }
+
+    private long[] expand(State origin, long[] frontier, LongIntMap seen, int depth, LongIntMap other, boolean forward) {
+        return expand(origin, frontier, seen, depth, other, forward, null);
+    }
+
+    /**
+     * Visits the states one command after (or before) the frontier, returning
+     * the new frontier. If the other search has seen one of them, the one
+     * with the shortest total distance is kept in meeting[0], and the
+     * distance in meeting[1]
+     */
+    private long[] expand(State origin, long[] frontier, LongIntMap seen, int depth, LongIntMap other, boolean forward, long[] meeting) {
+        long[] next = new long[frontier.length * MOVES.length];
+        int size = 0;
+        for (long state : frontier) {
+            int x = decodeX(origin, state), y = decodeY(origin, state), d = (int) (state & 7);
+            for (Command cmd : MOVES) {
+                int step = cmd == Command.MOVE ? (forward ? 1 : -1) : 0;
+                int nx = x + step * DX[d], ny = y + step * DY[d];
+                int nd = forward ? following(cmd, d) : previous(cmd, d);
+                if (!grid.isOpen(nx, ny)) {
+                    continue;
+                }
+                long key = encode(origin, nx, ny, nd);
+                if (seen.get(key) >= 0) {
+                    continue;
+                }
+                seen.put(key, depth);
+                next[size++] = key;
+                int remaining = other == null ? -1 : other.get(key);
+                if (remaining >= 0 && depth + remaining < meeting[1]) {
+                    meeting[0] = key;
+                    meeting[1] = depth + remaining;
+                }
+            }
+        }
+        return Arrays.copyOf(next, size);
+    }
+
+    /**
+     * Index of the state reached by the command on a small grid, -1 if it
+     * leaves the grid or runs into a wall
+     */
+    private int next(Command cmd, int x, int y, int d) {
+        if (cmd == Command.MOVE) {
+            x += DX[d];
+            y += DY[d];
+            return grid.isOpen(x, y) ? index(x, y, d) : -1;
+        }
+        return index(x, y, following(cmd, d));
+    }
+
+    /**
+     * Direction after a command
+     */
+    private int following(Command cmd, int d) {
+        return cmd == Command.LEFT ? rotate[d * 8 + 7] : cmd == Command.RIGHT ? rotate[d * 8 + 1] : d;
+    }
+
+    /**
+     * Direction before a command which ended in the given direction
+     */
+    private int previous(Command cmd, int d) {
+        return cmd == Command.LEFT ? rotate[d * 8 + 1] : cmd == Command.RIGHT ? rotate[d * 8 + 7] : d;
+    }
+
+    private int index(int x, int y, int d) {
+        return (x * (grid.getHeight() + 1) + y) * directions + d;
+    }
+
+    /**
+     * Encodes a state relative to the origin of a search, as 29 bits of x,
+     * 29 bits of y and 3 bits of direction
+     */
+    private static long encode(State origin, int x, int y, int d) {
+        return (((long) x - origin.x + BIAS) & COORD_MASK) << 32 | (((long) y - origin.y + BIAS) & COORD_MASK) << 3 | d;
+    }
+
+    private static int decodeX(State origin, long key) {
+        return (int) (((key >>> 32) & COORD_MASK) - BIAS + origin.x);
+    }
+
+    private static int decodeY(State origin, long key) {
+        return (int) (((key >>> 3) & COORD_MASK) - BIAS + origin.y);
+    }
+
+    private void check(State state) {
+        if (!grid.contains(state.x, state.y) || state.dir.ordinal() >= directions) {
+            throw new IllegalArgumentException(String.format("State %s is not on the %s grid", state, grid));
+        }
+        if (grid.isWall(state.x, state.y)) {
+            throw new IllegalArgumentException(String.format("State %s is on a wall of the %s grid", state, grid));
+        }
+    }
+
+    private static <K, V> Map<K, V> lru(final int capacity) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * A position and direction of the Pacman
+     */
+    public static final class State {
+
+        private final int x;
+        private final int y;
+        private final Direction dir;
+
+        public State(int x, int y, Direction dir) {
+            this.x = x;
+            this.y = y;
+            this.dir = dir;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public Direction getDirection() {
+            return dir;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof State)) {
+                return false;
+            }
+            State other = (State) o;
+            return x == other.x && y == other.y && dir == other.dir;
+        }
+
+        @Override
+        public int hashCode() {
+            return (x * 31 + y) * 31 + dir.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[%d, %d, %s]", x, y, dir);
+        }
+    }
+
+    /**
+     * Open addressing map of encoded states to their distance, -1 when absent
+     */
+    private static final class LongIntMap {
+
+        private static final long EMPTY = -1;
+
+        private long[] keys = newKeys(1 << 10);
+        private int[] values = new int[1 << 10];
+        private int size;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                if (keys[i] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long key, int value) {
+            if (size * 2 >= keys.length) {
+                long[] oldKeys = keys;
+                int[] oldValues = values;
+                keys = newKeys(oldKeys.length << 1);
+                values = new int[oldKeys.length << 1];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != EMPTY) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private static long[] newKeys(int size) {
+            long[] keys = new long[size];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
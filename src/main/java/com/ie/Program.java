@@ -0,0 +1,244 @@
+package com.ie;
+
+import java.util.Arrays;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+
+/**
+ * Compiled form of a sanitized list of commands.
+ *
+ * Each command is encoded as a single opcode word -
+ * - the low bits hold the opcode, which is the ordinal of the {@code Command}
+ * - for PLACE the high bits hold the ordinal of the direction and the
+ *   word is followed by the x and y operands
+ * - a LEFT or RIGHT by a given amount is a TURN of a single command
+ *
+ * A program can be run-length encoded with {@link #compress()} -
+ * - a run of MOVE commands becomes a single MOVE_RUN with the no of moves
+ * - a run of LEFT and RIGHT commands becomes a single TURN with the no of
+ *   commands and the net no of right turns, modulo 8
+ *
+ * @author sundeep
+ *
+ */
+public final class Program {
+
+    // Opcodes, these match the ordinals of Command
+    static final int OP_PLACE = 0;
+    static final int OP_MOVE = 1;
+    static final int OP_LEFT = 2;
+    static final int OP_RIGHT = 3;
+    static final int OP_REPORT = 4;
+    // Opcodes only used by compressed programs
+    static final int OP_TURN = 5;
+    static final int OP_MOVE_RUN = 6;
+
+    static final int OP_BITS = 3;
+    static final int OP_MASK = (1 << OP_BITS) - 1;
+    // A TURN holds the net right turns in the 3 bits after the opcode, then
+    // a bit set when it is a single LEFT by an amount, then the no of commands
+    static final int TURN_BITS = 3;
+    static final int TURN_MASK = (1 << TURN_BITS) - 1;
+    static final int TURN_LEFT = 1 << (OP_BITS + TURN_BITS);
+    static final int RUN_SHIFT = OP_BITS + TURN_BITS + 1;
+    static final int MAX_RUN = (1 << (32 - RUN_SHIFT)) - 1;
+
+    private int[] code;
+    private int length;
+    private int size;
+    private boolean compressed;
+    // No of commands of each type
+    private final int[] counts = new int[Command.values().length];
+
+    public Program() {
+        this(16);
+    }
+
+    public Program(int capacity) {
+        code = new int[Math.max(capacity, 4)];
+    }
+
+    /**
+     * Appends a PLACE command with its operands
+     */
+    void place(int xpos, int ypos, Direction dir) {
+        ensureCapacity(3);
+        code[length++] = OP_PLACE | (dir.ordinal() << OP_BITS);
+        code[length++] = xpos;
+        code[length++] = ypos;
+        size++;
+        counts[OP_PLACE]++;
+    }
+
+    /**
+     * Appends a command which takes no operands
+     */
+    void emit(Command cmd) {
+        ensureCapacity(1);
+        code[length++] = cmd.ordinal();
+        size++;
+        counts[cmd.ordinal()]++;
+    }
+
+    /**
+     * Appends a single LEFT or RIGHT command which turns
+     * the given no of times to the right, modulo 8
+     */
+    void turn(Command cmd, int rightTurns) {
+        ensureCapacity(1);
+        code[length++] = OP_TURN | ((rightTurns & TURN_MASK) << OP_BITS) | (cmd == Command.LEFT ? TURN_LEFT : 0) | (1 << RUN_SHIFT);
+        size++;
+        counts[cmd.ordinal()]++;
+    }
+
+    /**
+     * A copy of the program, which can be compressed without changing this one
+     */
+    Program copy() {
+        Program copy = new Program(length);
+        System.arraycopy(code, 0, copy.code, 0, length);
+        copy.length = length;
+        copy.size = size;
+        copy.compressed = compressed;
+        System.arraycopy(counts, 0, copy.counts, 0, counts.length);
+        return copy;
+    }
+
+    /**
+     * Drops all the commands, so the program can be reused
+     */
+    void clear() {
+        length = 0;
+        size = 0;
+        compressed = false;
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * Run-length encodes the program in place, returning it. The commands
+     * are the same, so the outcome of running the program does not change
+     */
+    public Program compress() {
+        int read = 0, write = 0;
+        while (read < length) {
+            int op = code[read] & OP_MASK;
+            if (op == OP_PLACE) {
+                code[write++] = code[read++];
+                code[write++] = code[read++];
+                code[write++] = code[read++];
+            } else if (op == OP_MOVE || op == OP_MOVE_RUN) {
+                int count = 0;
+                while (read < length && isMove(code[read]) && count + runLength(code[read]) <= MAX_RUN) {
+                    count += runLength(code[read++]);
+                }
+                code[write++] = OP_MOVE_RUN | (count << OP_BITS);
+            } else if (op == OP_LEFT || op == OP_RIGHT || op == OP_TURN) {
+                int count = 0, turns = 0;
+                while (read < length && isTurn(code[read]) && count + runLength(code[read]) <= MAX_RUN) {
+                    int word = code[read++];
+                    count += runLength(word);
+                    turns += rightTurns(word);
+                }
+                code[write++] = OP_TURN | ((turns & TURN_MASK) << OP_BITS) | (count << RUN_SHIFT);
+            } else {
+                code[write++] = code[read++];
+            }
+        }
+        length = write;
+        compressed = true;
+        return this;
+    }
+
+    /**
+     * Whether the program was run-length encoded
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    private static boolean isMove(int word) {
+        int op = word & OP_MASK;
+        return op == OP_MOVE || op == OP_MOVE_RUN;
+    }
+
+    private static boolean isTurn(int word) {
+        int op = word & OP_MASK;
+        return op == OP_LEFT || op == OP_RIGHT || op == OP_TURN;
+    }
+
+    /**
+     * No of commands held in a MOVE, LEFT, RIGHT, MOVE_RUN or TURN word
+     */
+    static int runLength(int word) {
+        switch (word & OP_MASK) {
+            case OP_MOVE_RUN:
+                return word >>> OP_BITS;
+            case OP_TURN:
+                return word >>> RUN_SHIFT;
+            default:
+                return 1;
+        }
+    }
+
+    /**
+     * Whether a LEFT, RIGHT or TURN word is a LEFT, a LEFT by an amount included.
+     * A TURN of a compressed run is neither
+     */
+    static boolean isLeft(int word) {
+        int op = word & OP_MASK;
+        return op == OP_LEFT || (op == OP_TURN && (word & TURN_LEFT) != 0);
+    }
+
+    /**
+     * Net no of right turns of a LEFT, RIGHT or TURN word, modulo 8
+     */
+    static int rightTurns(int word) {
+        switch (word & OP_MASK) {
+            case OP_LEFT:
+                return TURN_MASK;
+            case OP_RIGHT:
+                return 1;
+            default:
+                return (word >>> OP_BITS) & TURN_MASK;
+        }
+    }
+
+    /**
+     * Raw opcode stream. Only the first {@link #length()} words are valid.
+     */
+    int[] code() {
+        return code;
+    }
+
+    /**
+     * No of words used in the opcode stream
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * No of commands in the program
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * No of commands of the given type in the program
+     */
+    public int count(Command cmd) {
+        return counts[cmd.ordinal()];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void ensureCapacity(int words) {
+        if (length + words > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length << 1, length + words));
+        }
+    }
+}
@@ -0,0 +1,539 @@
+package com.ie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Caches the outcome of executing the valid commands of a scenario, so
+ * repeated scenarios are not executed again. Only the execution is cached,
+ * the commands are still validated and sanitized every time. Two modes -
+ * - SCENARIO : keyed on the grid and the whole compiled program
+ * - PREFIX : a trie of the compiled commands per grid, where each node
+ *   holds the state after its command and the events of its command, so
+ *   a program resumes from its longest cached prefix
+ *
+ * The least recently used entries are evicted first. The capacity bounds -
+ * - LRU : the no of entries, scenarios or trie nodes
+ * - SIZE : the no of ints held by the entries
+ *
+ * The cache can be shared between threads. Lookups and updates hold a
+ * lock, the commands which are not cached are executed outside of it.
+ *
+ * @author sundeep
+ *
+ */
+public final class SimulationCache {
+
+    public enum Mode {
+        SCENARIO, PREFIX
+    }
+
+    public enum Eviction {
+        LRU, SIZE
+    }
+
+    // Events recorded while executing, followed by their operands
+    private static final int EV_REPORT = 0; // x, y, dir
+    private static final int EV_IGNORED = 1; // reason, index, x, y, dir, count
+    private static final int[] NO_EVENTS = new int[0];
+    private static final Direction[] DIRECTIONS = Direction.VALUES;
+    private static final Rejection[] REJECTIONS = Rejection.values();
+
+    private final Mode mode;
+    private final Eviction eviction;
+    private final long capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder partialHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    // SCENARIO mode, in access order
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    // PREFIX mode, the root of the trie of each grid and all the nodes in access order.
+    // A root is dropped once its last child is evicted
+    private final Map<Grid, Root> roots = new HashMap<Grid, Root>();
+    private final Node recent = new Node(null, 0);
+    private long size;
+    private long weight;
+
+    /**
+     * Caches up to the given no of scenarios
+     */
+    public SimulationCache(int maxScenarios) {
+        this(Mode.SCENARIO, Eviction.LRU, maxScenarios);
+    }
+
+    public SimulationCache(Mode mode, Eviction eviction, long capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(String.format("Cache capacity [%d] has to be positive", capacity));
+        }
+        this.mode = mode;
+        this.eviction = eviction;
+        this.capacity = capacity;
+        recent.prev = recent.next = recent;
+    }
+
+    /**
+     * No of programs found in the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * No of programs which resumed from a cached prefix, only in PREFIX mode
+     */
+    public long getPartialHits() {
+        return partialHits.sum();
+    }
+
+    /**
+     * No of programs executed from the start
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * No of scenarios or trie nodes evicted
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * No of scenarios or trie nodes held
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * No of ints held by the scenarios or trie nodes
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * Drops all the entries, the counters are kept
+     */
+    public synchronized void clear() {
+        entries.clear();
+        roots.clear();
+        recent.prev = recent.next = recent;
+        size = weight = 0;
+    }
+
+    /**
+     * Executes the compiled valid commands on the given grid, passing the
+     * outcome to the listener, same as running them on a new Pacman.
+     * The program is not changed
+     */
+    void execute(Program program, Grid grid, SimulationListener listener) {
+        if (mode == Mode.SCENARIO) {
+            executeScenario(program, grid, listener);
+        } else {
+            executePrefix(program, grid, listener);
+        }
+    }
+
+    private void executeScenario(Program program, Grid grid, SimulationListener listener) {
+        if (!program.isCompressed()) {
+            program = program.copy().compress();
+        }
+        Key key = new Key(grid, Arrays.copyOf(program.code(), program.length()));
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            hits.increment();
+            replay(entry.events, listener);
+            complete(entry.state, listener);
+            return;
+        }
+        misses.increment();
+        Recorder recorder = new Recorder(listener);
+        Pacman pacman = new Pacman(grid, recorder);
+        pacman.run(program);
+        int[] state = new int[Pacman.STATE_SIZE];
+        pacman.saveState(state, 0);
+        entry = new Entry(recorder.take(), state);
+        pacman.complete();
+
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous == null) {
+                size++;
+            } else {
+                weight -= previous.weight(key);
+            }
+            weight += entry.weight(key);
+            Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+            while (isFull() && eldest.hasNext()) {
+                Map.Entry<Key, Entry> evicted = eldest.next();
+                eldest.remove();
+                size--;
+                weight -= evicted.getValue().weight(evicted.getKey());
+                evictions.increment();
+            }
+        }
+    }
+
+    private void executePrefix(Program program, Grid grid, SimulationListener listener) {
+        final int[] code = program.code();
+        final int length = program.length();
+        final List<int[]> cached = new ArrayList<int[]>();
+        final int[] state = new int[Pacman.STATE_SIZE];
+        int resumeAt = 0;
+        synchronized (this) {
+            Node node = roots.get(grid);
+            Node resume = null;
+            for (int pc = 0; node != null && pc < length && (node = node.child(code[pc])) != null; pc++) {
+                if (node.state != null) {
+                    resume = node;
+                    resumeAt = pc + 1;
+                }
+            }
+            if (resume != null) {
+                System.arraycopy(resume.state, 0, state, 0, Pacman.STATE_SIZE);
+                for (Node n = resume; n.parent != null; n = n.parent) {
+                    touch(n);
+                    if (n.events != null && n.events.length > 0) {
+                        cached.add(n.events);
+                    }
+                }
+            }
+        }
+        for (int i = cached.size() - 1; i >= 0; i--) {
+            replay(cached.get(i), listener);
+        }
+        if (resumeAt == length) {
+            hits.increment();
+            complete(state, listener);
+            return;
+        }
+        if (resumeAt > 0) {
+            partialHits.increment();
+        } else {
+            misses.increment();
+        }
+
+        // Executes the rest one command at a time, keeping the
+        // state and the events at the last word of every command
+        Recorder recorder = new Recorder(listener);
+        Pacman pacman = new Pacman(grid, recorder);
+        if (resumeAt > 0) {
+            pacman.restoreState(state, 0);
+        }
+        int[] states = new int[(length - resumeAt) * Pacman.STATE_SIZE];
+        int[][] events = new int[length - resumeAt][];
+        for (int pc = resumeAt; pc < length;) {
+            int next = pc + ((code[pc] & Program.OP_MASK) == Program.OP_PLACE ? 3 : 1);
+            pacman.run(program, pc, next);
+            pacman.saveState(states, (next - 1 - resumeAt) * Pacman.STATE_SIZE);
+            events[next - 1 - resumeAt] = recorder.take();
+            pc = next;
+        }
+        pacman.complete();
+
+        synchronized (this) {
+            Node node = root(grid);
+            for (int pc = 0; pc < length; pc++) {
+                Node child = node.child(code[pc]);
+                if (child == null) {
+                    if (pc < resumeAt) {
+                        // the prefix was evicted in the meantime
+                        break;
+                    }
+                    child = node.add(code[pc]);
+                    int i = pc - resumeAt;
+                    if (events[i] != null) {
+                        child.state = Arrays.copyOfRange(states, i * Pacman.STATE_SIZE, (i + 1) * Pacman.STATE_SIZE);
+                        child.events = events[i];
+                    }
+                    size++;
+                    weight += child.weight();
+                }
+                node = child;
+            }
+            for (Node n = node; n.parent != null; n = n.parent) {
+                touch(n);
+            }
+            evictNodes();
+        }
+    }
+
+    private Node root(Grid grid) {
+        Root root = roots.get(grid);
+        if (root == null) {
+            root = new Root(grid);
+            roots.put(grid, root);
+        }
+        return root;
+    }
+
+    /**
+     * No of grids with a trie, in PREFIX mode
+     */
+    synchronized int grids() {
+        return roots.size();
+    }
+
+    /**
+     * Moves a node to the most recent end of the access order. The nodes of
+     * a path are touched from the leaf up, so a node is always more recent
+     * than its children and the least recent node is always a leaf
+     */
+    private void touch(Node node) {
+        if (node.next != null) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+        }
+        node.next = recent.next;
+        node.prev = recent;
+        recent.next.prev = node;
+        recent.next = node;
+    }
+
+    private void evictNodes() {
+        while (isFull() && recent.prev != recent) {
+            Node leaf = recent.prev;
+            leaf.prev.next = recent;
+            recent.prev = leaf.prev;
+            Node parent = leaf.parent;
+            parent.remove(leaf.key);
+            if (parent instanceof Root && parent.count == 0) {
+                roots.remove(((Root) parent).grid);
+            }
+            size--;
+            weight -= leaf.weight();
+            evictions.increment();
+        }
+    }
+
+    private boolean isFull() {
+        return (eviction == Eviction.LRU ? size : weight) > capacity;
+    }
+
+    private static void complete(int[] state, SimulationListener listener) {
+        listener.onComplete(state[0], state[1], DIRECTIONS[state[2]]);
+    }
+
+    /**
+     * Passes the recorded events to the listener
+     */
+    private static void replay(int[] events, SimulationListener listener) {
+        int i = 0;
+        while (i < events.length) {
+            if (events[i] == EV_REPORT) {
+                listener.onReport(events[i + 1], events[i + 2], DIRECTIONS[events[i + 3]]);
+                i += 4;
+            } else {
+                Rejection reason = REJECTIONS[events[i + 1]];
+                Direction dir = DIRECTIONS[events[i + 5]];
+                if (events[i + 6] == 1) {
+                    listener.onIgnoredMove(reason, events[i + 2], events[i + 3], events[i + 4], dir);
+                } else {
+                    listener.onIgnoredMoves(reason, events[i + 2], events[i + 3], events[i + 4], dir, events[i + 6]);
+                }
+                i += 7;
+            }
+        }
+    }
+
+    /**
+     * Passes the events of an execution on to a listener, keeping them
+     */
+    private static final class Recorder implements SimulationListener {
+
+        private final SimulationListener listener;
+        private int[] events = new int[16];
+        private int length;
+
+        Recorder(SimulationListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onReport(int xpos, int ypos, Direction dir) {
+            listener.onReport(xpos, ypos, dir);
+            ensureCapacity(4);
+            events[length++] = EV_REPORT;
+            events[length++] = xpos;
+            events[length++] = ypos;
+            events[length++] = dir.ordinal();
+        }
+
+        @Override
+        public void onIgnoredMove(Rejection reason, int index, int xpos, int ypos, Direction dir) {
+            listener.onIgnoredMove(reason, index, xpos, ypos, dir);
+            record(reason, index, xpos, ypos, dir, 1);
+        }
+
+        @Override
+        public void onIgnoredMoves(Rejection reason, int index, int xpos, int ypos, Direction dir, int count) {
+            listener.onIgnoredMoves(reason, index, xpos, ypos, dir, count);
+            record(reason, index, xpos, ypos, dir, count);
+        }
+
+        @Override
+        public void onComplete(int xpos, int ypos, Direction dir) {
+            listener.onComplete(xpos, ypos, dir);
+        }
+
+        private void record(Rejection reason, int index, int xpos, int ypos, Direction dir, int count) {
+            ensureCapacity(7);
+            events[length++] = EV_IGNORED;
+            events[length++] = reason.ordinal();
+            events[length++] = index;
+            events[length++] = xpos;
+            events[length++] = ypos;
+            events[length++] = dir.ordinal();
+            events[length++] = count;
+        }
+
+        /**
+         * Returns the events recorded since the last call
+         */
+        int[] take() {
+            int[] taken = length == 0 ? NO_EVENTS : Arrays.copyOf(events, length);
+            length = 0;
+            return taken;
+        }
+
+        private void ensureCapacity(int ints) {
+            if (length + ints > events.length) {
+                events = Arrays.copyOf(events, Math.max(events.length << 1, length + ints));
+            }
+        }
+    }
+
+    /**
+     * A program on a grid
+     */
+    private static final class Key {
+
+        private final Grid grid;
+        private final int[] code;
+        private final int hash;
+
+        Key(Grid grid, int[] code) {
+            this.grid = grid;
+            this.code = code;
+            this.hash = 31 * grid.hashCode() + Arrays.hashCode(code);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && grid.equals(other.grid) && Arrays.equals(code, other.code);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The outcome of a program, its events and the final state
+     */
+    private static final class Entry {
+
+        private final int[] events;
+        private final int[] state;
+
+        Entry(int[] events, int[] state) {
+            this.events = events;
+            this.state = state;
+        }
+
+        long weight(Key key) {
+            return key.code.length + events.length + state.length;
+        }
+    }
+
+    /**
+     * A word of a program in the trie. The state and the events are only
+     * set on the last word of a command, the first words of a PLACE have
+     * neither. The children are kept sorted by their word
+     */
+    private static class Node {
+
+        private final Node parent;
+        private final int key;
+        private int[] keys;
+        private Node[] children;
+        private int count;
+        private int[] state;
+        private int[] events;
+        private Node prev;
+        private Node next;
+
+        Node(Node parent, int key) {
+            this.parent = parent;
+            this.key = key;
+        }
+
+        Node child(int word) {
+            int i = count == 0 ? -1 : Arrays.binarySearch(keys, 0, count, word);
+            return i < 0 ? null : children[i];
+        }
+
+        Node add(int word) {
+            if (count == 0) {
+                keys = new int[1];
+                children = new Node[1];
+            } else if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count << 1);
+                children = Arrays.copyOf(children, count << 1);
+            }
+            int i = -Arrays.binarySearch(keys, 0, count, word) - 1;
+            System.arraycopy(keys, i, keys, i + 1, count - i);
+            System.arraycopy(children, i, children, i + 1, count - i);
+            Node child = new Node(this, word);
+            keys[i] = word;
+            children[i] = child;
+            count++;
+            return child;
+        }
+
+        void remove(int word) {
+            int i = Arrays.binarySearch(keys, 0, count, word);
+            System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+            System.arraycopy(children, i + 1, children, i, count - i - 1);
+            children[--count] = null;
+        }
+
+        long weight() {
+            return 1 + (state == null ? 0 : state.length + events.length);
+        }
+    }
+
+    /**
+     * The root of the trie of a grid, which holds no word
+     */
+    private static final class Root extends Node {
+
+        private final Grid grid;
+
+        Root(Grid grid) {
+            super(null, 0);
+            this.grid = grid;
+        }
+    }
+}
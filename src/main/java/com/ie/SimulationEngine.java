@@ -0,0 +1,169 @@
+package com.ie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs independent scenarios in parallel. Every scenario is run with its
+ * own simulator state and output, and the outputs are returned in the
+ * same order as the scenarios. The outputs are either the console text
+ * or a {@link SimulationResult} per scenario.
+ *
+ * The engine owns its thread pool (except for the common pool), so it
+ * should be closed once done.
+ *
+ * @author sundeep
+ *
+ */
+public final class SimulationEngine implements AutoCloseable {
+
+    public enum PoolType {
+        /** Work stealing pool, suits many short scenarios */
+        FORK_JOIN,
+        /** Fixed no of platform threads */
+        FIXED,
+        /** The shared {@code ForkJoinPool.commonPool()}, parallelism is ignored */
+        COMMON;
+    }
+
+    // No of chunks per thread, so that threads finishing early can pick up more work
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private final ExecutorService pool;
+    private final int parallelism;
+    private final boolean ownsPool;
+
+    /**
+     * Creates a fork-join engine using all the available cores
+     */
+    public SimulationEngine() {
+        this(PoolType.FORK_JOIN, Runtime.getRuntime().availableProcessors());
+    }
+
+    public SimulationEngine(PoolType type, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(String.format("Parallelism [%d] must be at least 1", parallelism));
+        }
+        switch (type) {
+            case FORK_JOIN:
+                this.pool = new ForkJoinPool(parallelism);
+                this.parallelism = parallelism;
+                this.ownsPool = true;
+                break;
+            case FIXED:
+                this.pool = Executors.newFixedThreadPool(parallelism);
+                this.parallelism = parallelism;
+                this.ownsPool = true;
+                break;
+            default:
+                this.pool = ForkJoinPool.commonPool();
+                this.parallelism = ForkJoinPool.getCommonPoolParallelism();
+                this.ownsPool = false;
+                break;
+        }
+    }
+
+    /**
+     * Runs the scenarios, returning the console output of each scenario
+     */
+    public List<String> run(Stream<? extends List<String>> scenarios) {
+        return run(scenarios.collect(Collectors.toList()));
+    }
+
+    /**
+     * Runs the scenarios, returning the console output of each scenario
+     */
+    public List<String> run(Collection<? extends List<String>> scenarios) {
+        return runAll(scenarios, SimulationEngine::runScenario);
+    }
+
+    /**
+     * Runs the scenarios without printing anything, returning the outcome of each scenario
+     */
+    public List<SimulationResult> simulate(Stream<? extends List<String>> scenarios) {
+        return simulate(scenarios.collect(Collectors.toList()));
+    }
+
+    /**
+     * Runs the scenarios without printing anything, returning the outcome of each scenario
+     */
+    public List<SimulationResult> simulate(Collection<? extends List<String>> scenarios) {
+        return simulate(scenarios, Grid.DEFAULT);
+    }
+
+    /**
+     * Runs the scenarios on the given grid without printing anything, returning the outcome of each scenario
+     */
+    public List<SimulationResult> simulate(Collection<? extends List<String>> scenarios, final Grid grid) {
+        return runAll(scenarios, cmds -> PacmanSimulator.simulate(cmds, grid));
+    }
+
+    /**
+     * Applies the function to all the scenarios in parallel,
+     * returning the results in the same order as the scenarios
+     */
+    private <T> List<T> runAll(Collection<? extends List<String>> scenarios, final Function<List<String>, T> function) {
+        final List<? extends List<String>> inputs = scenarios instanceof List
+                ? (List<? extends List<String>>) scenarios : new ArrayList<List<String>>(scenarios);
+        @SuppressWarnings("unchecked")
+        final T[] outputs = (T[]) new Object[inputs.size()];
+        final int chunk = Math.max(1, outputs.length / (parallelism * CHUNKS_PER_THREAD));
+
+        List<Future<?>> futures = new ArrayList<Future<?>>(outputs.length / chunk + 1);
+        for (int start = 0; start < outputs.length; start += chunk) {
+            final int from = start;
+            final int to = Math.min(outputs.length, start + chunk);
+            futures.add(pool.submit(() -> {
+                for (int i = from; i < to; i++) {
+                    outputs[i] = function.apply(inputs.get(i));
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running scenarios", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to run scenarios", e.getCause());
+        }
+        return Arrays.asList(outputs);
+    }
+
+    /**
+     * Runs a single scenario capturing its output
+     */
+    static String runScenario(List<String> cmds) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(256);
+        try {
+            PrintStream out = new PrintStream(buf, false, "UTF-8");
+            PacmanSimulator.runPacmanSimulator(cmds, out);
+            out.flush();
+            return buf.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+}
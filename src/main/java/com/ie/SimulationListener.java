@@ -0,0 +1,104 @@
+package com.ie;
+
+import java.util.List;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Receives the outcome of a simulation as it runs. Events carry primitives
+ * and enums only, turning them into text is left to the listener, see
+ * {@link ConsoleListener}. All methods do nothing by default.
+ *
+ * @author sundeep
+ *
+ */
+public interface SimulationListener {
+
+    /**
+     * A simulation is starting on the given grid
+     */
+    default void onStart(Grid grid) {
+    }
+
+    /**
+     * The input had more than the maximum no of commands
+     */
+    default void onLimitExceeded(int maxCommands) {
+    }
+
+    /**
+     * The input has no PLACE or no REPORT command
+     */
+    default void onMissingCommand(Command command) {
+    }
+
+    /**
+     * A command was dropped while sanitizing the input. The token is the
+     * trimmed, upper cased command. A PLACE command can be rejected for
+     * more than one reason
+     */
+    default void onRejected(Rejection reason, String token) {
+    }
+
+    /**
+     * Whether {@link #onValidCommands(List)} should be called. Listing the
+     * valid commands needs them to be kept as Strings, so it is off by default
+     */
+    default boolean isEchoEnabled() {
+        return false;
+    }
+
+    /**
+     * Whether the events have to come in the order in which
+     * {@link PacmanSimulator#runPacmanSimulator(java.util.List, Grid, SimulationListener)}
+     * gives them, eg. to print the same text. A single pass over the
+     * input gives each event as soon as it can, so it holds the whole
+     * input to keep this order. Off by default
+     */
+    default boolean isOrdered() {
+        return false;
+    }
+
+    /**
+     * The commands which are about to be executed
+     */
+    default void onValidCommands(List<String> tokens) {
+    }
+
+    /**
+     * No command is left after sanitizing the input
+     */
+    default void onNothingToProcess() {
+    }
+
+    /**
+     * The MOVE command at the given index was ignored,
+     * the position is the one before the MOVE
+     */
+    default void onIgnoredMove(Rejection reason, int index, int xpos, int ypos, Direction dir) {
+    }
+
+    /**
+     * A run of MOVE commands was ignored, all at the same index and position.
+     * Calls {@link #onIgnoredMove} for each of them by default
+     */
+    default void onIgnoredMoves(Rejection reason, int index, int xpos, int ypos, Direction dir, int count) {
+        for (int i = 0; i < count; i++) {
+            onIgnoredMove(reason, index, xpos, ypos, dir);
+        }
+    }
+
+    /**
+     * A REPORT command was executed
+     */
+    default void onReport(int xpos, int ypos, Direction dir) {
+    }
+
+    /**
+     * All the commands were executed, giving the final position
+     */
+    default void onComplete(int xpos, int ypos, Direction dir) {
+    }
+}
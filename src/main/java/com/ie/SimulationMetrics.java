@@ -0,0 +1,359 @@
+package com.ie;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Counters and latency histograms of the simulations run in this JVM -
+ * - the no of valid commands of each type
+ * - the no of commands rejected for each reason
+ * - the no of scenarios missing a PLACE or REPORT command, or over the limit
+ * - the latency of the parse, sanitize and execute stages of a scenario
+ *
+ * Metrics are disabled by default, so a simulation only checks whether
+ * they are enabled, once per scenario. They are enabled with
+ * {@link #enable()} or with -Dpacman.metrics=true. All the counters are
+ * LongAdders, so simulations on many threads do not contend on them, and
+ * nothing is allocated while executing the commands.
+ *
+ * The metrics are read with {@link #export(Exporter)}. The stages are
+ * only timed for scenarios given as a list of commands, streaming
+ * input is only counted.
+ *
+ * @author sundeep
+ *
+ */
+public final class SimulationMetrics {
+
+    /**
+     * Stages of a scenario which are timed
+     */
+    public enum Stage {
+        // checking the commands for PLACE and REPORT, and their no
+        PARSE,
+        // validating, sanitizing and compiling the commands
+        SANITIZE,
+        // executing the compiled commands
+        EXECUTE
+    }
+
+    /**
+     * Receives the metrics, see {@link SimulationMetrics#export(Exporter)}
+     */
+    public interface Exporter {
+
+        void counter(String name, long value);
+
+        void histogram(String name, Histogram histogram);
+    }
+
+    private static final Command[] COMMANDS = Command.values();
+    private static final Rejection[] REJECTIONS = Rejection.values();
+    private static final Stage[] STAGES = Stage.values();
+
+    private static volatile SimulationMetrics current = Boolean.getBoolean("pacman.metrics") ? new SimulationMetrics() : null;
+
+    private final LongAdder scenarios = new LongAdder();
+    private final LongAdder limitExceeded = new LongAdder();
+    private final LongAdder nothingToProcess = new LongAdder();
+    private final LongAdder[] commands = adders(COMMANDS.length);
+    private final LongAdder[] rejections = adders(REJECTIONS.length);
+    private final LongAdder[] missing = adders(COMMANDS.length);
+    private final Histogram[] stages = new Histogram[STAGES.length];
+
+    SimulationMetrics() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Enables the metrics, returning them
+     */
+    public static synchronized SimulationMetrics enable() {
+        if (current == null) {
+            current = new SimulationMetrics();
+        }
+        return current;
+    }
+
+    /**
+     * Disables the metrics, dropping the values collected so far
+     */
+    public static synchronized void disable() {
+        current = null;
+    }
+
+    /**
+     * The enabled metrics, null if they are disabled
+     */
+    public static SimulationMetrics current() {
+        return current;
+    }
+
+    public long getScenarios() {
+        return scenarios.sum();
+    }
+
+    /**
+     * No of valid commands of the given type
+     */
+    public long getCommands(Command command) {
+        return commands[command.ordinal()].sum();
+    }
+
+    /**
+     * No of commands rejected for the given reason, by sanitizing or executing
+     */
+    public long getRejections(Rejection reason) {
+        return rejections[reason.ordinal()].sum();
+    }
+
+    /**
+     * No of scenarios missing the given command
+     */
+    public long getMissing(Command command) {
+        return missing[command.ordinal()].sum();
+    }
+
+    public long getLimitExceeded() {
+        return limitExceeded.sum();
+    }
+
+    public long getNothingToProcess() {
+        return nothingToProcess.sum();
+    }
+
+    public Histogram getLatency(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * Passes every metric to the exporter. Counters are named
+     * "commands.MOVE", "rejections.OFF_GRID", "missing.REPORT" etc.
+     * and histograms "latency.EXECUTE" etc.
+     */
+    public void export(Exporter exporter) {
+        exporter.counter("scenarios", getScenarios());
+        for (Command c : COMMANDS) {
+            exporter.counter("commands." + c, getCommands(c));
+        }
+        for (Rejection r : REJECTIONS) {
+            exporter.counter("rejections." + r, getRejections(r));
+        }
+        exporter.counter("missing." + Command.PLACE, getMissing(Command.PLACE));
+        exporter.counter("missing." + Command.REPORT, getMissing(Command.REPORT));
+        exporter.counter("limit_exceeded", getLimitExceeded());
+        exporter.counter("nothing_to_process", getNothingToProcess());
+        for (Stage s : STAGES) {
+            exporter.histogram("latency." + s, getLatency(s));
+        }
+    }
+
+    /**
+     * One metric per line, with the count, mean, max
+     * and percentiles of the histograms in nanoseconds
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        export(new Exporter() {
+            @Override
+            public void counter(String name, long value) {
+                sb.append(String.format("%s %d%n", name, value));
+            }
+
+            @Override
+            public void histogram(String name, Histogram histogram) {
+                sb.append(String.format("%s count=%d mean=%d max=%d p50<=%d p99<=%d%n", name, histogram.getCount(), histogram.getMean(),
+                        histogram.getMax(), histogram.getPercentile(50), histogram.getPercentile(99)));
+            }
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Counts a scenario and its commands, and wraps the listener to
+     * count the rejections passed to it
+     */
+    SimulationListener onScenario(SimulationListener listener) {
+        scenarios.increment();
+        return new CountingListener(listener);
+    }
+
+    /**
+     * Counts the commands of a compiled program
+     */
+    void onCompiled(Program program) {
+        for (int i = 0; i < COMMANDS.length; i++) {
+            int count = program.count(COMMANDS[i]);
+            if (count > 0) {
+                commands[i].add(count);
+            }
+        }
+    }
+
+    /**
+     * Records the latency of a stage, which started at the given System.nanoTime()
+     */
+    void onStage(Stage stage, long startNanos) {
+        stages[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    private static LongAdder[] adders(int size) {
+        LongAdder[] adders = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    /**
+     * Latency histogram with a bucket per power of 2 nanoseconds,
+     * so a value is within a factor of 2 of its bucket
+     */
+    public static final class Histogram {
+
+        private static final int BUCKETS = 64;
+
+        private final LongAdder[] buckets = adders(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void record(long nanos) {
+            nanos = Math.max(nanos, 0);
+            buckets[BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+            count.increment();
+            sum.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public long getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : getSum() / count;
+        }
+
+        /**
+         * No of values in [2^(bucket-1), 2^bucket), bucket 0 holds 0
+         */
+        public long getBucket(int bucket) {
+            return buckets[bucket].sum();
+        }
+
+        /**
+         * Upper bound of the given percentile, the upper bound of the
+         * bucket holding it
+         */
+        public long getPercentile(double percentile) {
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return (1L << i) - 1;
+                }
+            }
+            return getMax();
+        }
+    }
+
+    /**
+     * Counts the rejections passed to a listener
+     */
+    private final class CountingListener implements SimulationListener {
+
+        private final SimulationListener listener;
+
+        CountingListener(SimulationListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onStart(Grid grid) {
+            listener.onStart(grid);
+        }
+
+        @Override
+        public void onLimitExceeded(int maxCommands) {
+            limitExceeded.increment();
+            listener.onLimitExceeded(maxCommands);
+        }
+
+        @Override
+        public void onMissingCommand(Command command) {
+            missing[command.ordinal()].increment();
+            listener.onMissingCommand(command);
+        }
+
+        @Override
+        public void onRejected(Rejection reason, String token) {
+            rejections[reason.ordinal()].increment();
+            listener.onRejected(reason, token);
+        }
+
+        @Override
+        public boolean isOrdered() {
+            return listener.isOrdered();
+        }
+
+        @Override
+        public boolean isEchoEnabled() {
+            return listener.isEchoEnabled();
+        }
+
+        @Override
+        public void onValidCommands(List<String> commands) {
+            listener.onValidCommands(commands);
+        }
+
+        @Override
+        public void onNothingToProcess() {
+            nothingToProcess.increment();
+            listener.onNothingToProcess();
+        }
+
+        @Override
+        public void onIgnoredMove(Rejection reason, int index, int xpos, int ypos, Direction dir) {
+            rejections[reason.ordinal()].increment();
+            listener.onIgnoredMove(reason, index, xpos, ypos, dir);
+        }
+
+        @Override
+        public void onIgnoredMoves(Rejection reason, int index, int xpos, int ypos, Direction dir, int count) {
+            rejections[reason.ordinal()].add(count);
+            listener.onIgnoredMoves(reason, index, xpos, ypos, dir, count);
+        }
+
+        @Override
+        public void onReport(int xpos, int ypos, Direction dir) {
+            listener.onReport(xpos, ypos, dir);
+        }
+
+        @Override
+        public void onComplete(int xpos, int ypos, Direction dir) {
+            listener.onComplete(xpos, ypos, dir);
+        }
+    }
+}
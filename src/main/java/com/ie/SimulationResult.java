@@ -0,0 +1,164 @@
+package com.ie;
+
+import java.util.Arrays;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Collects the outcome of a simulation as primitives -
+ * - the final position, if any command was executed
+ * - the position at every REPORT
+ * - the no of commands rejected for each reason
+ * Nothing is formatted until {@link #toString()} is called
+ *
+ * @author sundeep
+ *
+ */
+public class SimulationResult implements SimulationListener {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int[] rejections = new int[Rejection.values().length];
+    private Grid grid = Grid.DEFAULT;
+    private int[] reports = new int[12];
+    private int reportCount;
+    private boolean completed, missingPlace, missingReport, limitExceeded;
+    private int finalX, finalY, finalDir;
+
+    @Override
+    public void onStart(Grid grid) {
+        this.grid = grid;
+    }
+
+    @Override
+    public void onLimitExceeded(int maxCommands) {
+        limitExceeded = true;
+    }
+
+    @Override
+    public void onMissingCommand(Command command) {
+        if (command == Command.PLACE) {
+            missingPlace = true;
+        } else {
+            missingReport = true;
+        }
+    }
+
+    @Override
+    public void onRejected(Rejection reason, String token) {
+        rejections[reason.ordinal()]++;
+    }
+
+    @Override
+    public void onIgnoredMove(Rejection reason, int index, int xpos, int ypos, Direction dir) {
+        rejections[reason.ordinal()]++;
+    }
+
+    @Override
+    public void onIgnoredMoves(Rejection reason, int index, int xpos, int ypos, Direction dir, int count) {
+        rejections[reason.ordinal()] += count;
+    }
+
+    @Override
+    public void onReport(int xpos, int ypos, Direction dir) {
+        if (reportCount * 3 == reports.length) {
+            reports = Arrays.copyOf(reports, reports.length << 1);
+        }
+        int i = reportCount * 3;
+        reports[i] = xpos;
+        reports[i + 1] = ypos;
+        reports[i + 2] = dir.ordinal();
+        reportCount++;
+    }
+
+    @Override
+    public void onComplete(int xpos, int ypos, Direction dir) {
+        completed = true;
+        finalX = xpos;
+        finalY = ypos;
+        finalDir = dir.ordinal();
+    }
+
+    /**
+     * The grid the simulation ran on
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Whether any command was executed. The final position
+     * is only valid when this is true
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int getFinalX() {
+        return finalX;
+    }
+
+    public int getFinalY() {
+        return finalY;
+    }
+
+    public Direction getFinalDirection() {
+        return completed ? DIRECTIONS[finalDir] : null;
+    }
+
+    public int getReportCount() {
+        return reportCount;
+    }
+
+    public int getReportX(int report) {
+        return reports[checkReport(report) * 3];
+    }
+
+    public int getReportY(int report) {
+        return reports[checkReport(report) * 3 + 1];
+    }
+
+    public Direction getReportDirection(int report) {
+        return DIRECTIONS[reports[checkReport(report) * 3 + 2]];
+    }
+
+    /**
+     * No of commands rejected for the given reason
+     */
+    public int getRejections(Rejection reason) {
+        return rejections[reason.ordinal()];
+    }
+
+    public boolean isMissingPlace() {
+        return missingPlace;
+    }
+
+    public boolean isMissingReport() {
+        return missingReport;
+    }
+
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    private int checkReport(int report) {
+        if (report < 0 || report >= reportCount) {
+            throw new IndexOutOfBoundsException(String.format("Report [%d] is not in [0, %d)", report, reportCount));
+        }
+        return report;
+    }
+
+    /**
+     * Same format as the REPORT output, one line per REPORT
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < reportCount; i++) {
+            sb.append(String.format("Output: %d, %d, %s%n", getReportX(i), getReportY(i), getReportDirection(i)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,262 @@
+package com.ie;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Resident simulator, which runs scenarios sent over TCP so the JVM
+ * starts only once. All the connections are served by a single thread
+ * with non-blocking NIO.
+ *
+ * Requests and responses are frames of a 4 byte big endian length
+ * followed by that many bytes -
+ * - a request holds one scenario, the commands separated by {@code :::}
+ * - a response holds the result line of a scenario, same as
+ *   {@link BatchRunner}: "Output: x, y, F" for the last REPORT or
+ *   "Output: NONE", ending with a new line
+ *
+ * Requests can be pipelined, a client can send any no of them without
+ * waiting, and the responses come back in the same order. A request
+ * longer than the maximum frame size closes the connection.
+ *
+ * @author sundeep
+ *
+ */
+public final class SimulatorServer implements Closeable {
+
+    public static final int DEFAULT_MAX_FRAME_SIZE = 1 << 20;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InetSocketAddress address;
+    private final int maxFrameSize;
+    private final BatchRunner runner;
+    private volatile boolean closed;
+    private volatile boolean running;
+    private volatile long scenarios;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+
+    public SimulatorServer(InetSocketAddress address, Grid grid) {
+        this(address, grid, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    public SimulatorServer(InetSocketAddress address, Grid grid, int maxFrameSize) {
+        if (maxFrameSize < 0) {
+            throw new IllegalArgumentException(String.format("Maximum frame size [%d] can not be negative", maxFrameSize));
+        }
+        this.address = address;
+        this.maxFrameSize = maxFrameSize;
+        this.runner = new BatchRunner(grid);
+    }
+
+    /**
+     * Starts listening, the connections are only served by {@link #run()}
+     */
+    public void bind() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * Starts listening and serves the connections on a background thread
+     */
+    public void start() throws IOException {
+        bind();
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    SimulatorServer.this.run();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, "pacman-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * The address the server listens on, with the actual port
+     * if the server was bound to any free port
+     */
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * No of scenarios run so far
+     */
+    public long getScenarios() {
+        return scenarios;
+    }
+
+    /**
+     * Serves the connections on the calling thread until the server is closed
+     */
+    public void run() throws IOException {
+        running = true;
+        try {
+            while (!closed) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    try {
+                        serve(key);
+                    } catch (IOException e) {
+                        disconnect(key);
+                    }
+                }
+            }
+        } catch (ClosedSelectorException e) {
+            // closed while waiting
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+    }
+
+    /**
+     * Reads what is available, runs all the complete requests and writes
+     * back their responses. While a client does not read its responses the
+     * connection is not read either, so the buffers stay bounded
+     */
+    private void serve(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection conn = (Connection) key.attachment();
+        if (key.isReadable() && channel.read(conn.in) < 0) {
+            conn.eof = true;
+        }
+        boolean flushed;
+        do {
+            process(conn);
+            conn.out.flip();
+            channel.write(conn.out);
+            flushed = !conn.out.hasRemaining();
+            conn.out.compact();
+        } while (flushed && hasFrame(conn.in));
+
+        if (!flushed) {
+            key.interestOps(SelectionKey.OP_WRITE);
+        } else if (conn.eof) {
+            disconnect(key);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Runs the complete requests in the input buffer, as long
+     * as their responses fit in the output buffer
+     */
+    private void process(Connection conn) throws IOException {
+        ByteBuffer in = conn.in, out = conn.out;
+        in.flip();
+        while (in.remaining() >= 4 && out.remaining() >= BatchRunner.MAX_RESULT_SIZE + 4) {
+            int length = frameLength(in);
+            if (in.remaining() < 4 + length) {
+                break;
+            }
+            int from = in.position() + 4;
+            int lengthAt = out.position();
+            out.position(lengthAt + 4);
+            runner.runScenario(in, from, from + length, out);
+            out.putInt(lengthAt, out.position() - lengthAt - 4);
+            in.position(from + length);
+            scenarios++;
+        }
+        if (in.remaining() >= 4 && 4 + frameLength(in) > in.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(4 + frameLength(in), Math.min(in.capacity() << 1, 4 + maxFrameSize)));
+            larger.put(in);
+            conn.in = larger;
+        } else {
+            in.compact();
+        }
+    }
+
+    private int frameLength(ByteBuffer in) throws IOException {
+        int length = in.getInt(in.position());
+        if (length < 0 || length > maxFrameSize) {
+            throw new IOException(String.format("Frame size [%d] is not in [0, %d]", length, maxFrameSize));
+        }
+        return length;
+    }
+
+    private static boolean hasFrame(ByteBuffer in) {
+        return in.position() >= 4 && in.position() - 4 >= in.getInt(0);
+    }
+
+    private void disconnect(SelectionKey key) throws IOException {
+        key.cancel();
+        key.channel().close();
+    }
+
+    /**
+     * Stops serving and closes all the connections
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (selector != null && thread == null && !running) {
+            selector.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    /**
+     * Buffers of a connection. The input buffer holds the bytes read and
+     * not yet run, the output buffer the responses not yet written
+     */
+    private static final class Connection {
+
+        private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        private boolean eof;
+    }
+}
@@ -0,0 +1,274 @@
+package com.ie;
+
+import java.util.Arrays;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Simulates many Pacmen on a shared grid. Every agent has its own compiled
+ * program, and each tick executes the next command of every agent, in the
+ * order the agents were added.
+ *
+ * The state of the agents is kept in parallel primitive arrays and all the
+ * programs share one opcode array, so a tick does not allocate. When
+ * collisions are enabled the occupied positions are kept in a bitset of
+ * the grid, and a PLACE or MOVE onto an occupied position is ignored.
+ * A MOVE into a wall of the grid is ignored.
+ *
+ * @author sundeep
+ *
+ */
+public final class Swarm {
+
+    /**
+     * Receives the outcome of the commands of each agent.
+     * All methods do nothing by default.
+     */
+    public interface Listener {
+
+        default void onReport(int agent, int xpos, int ypos, Direction dir) {
+        }
+
+        /**
+         * A PLACE or MOVE of the agent was ignored, the position is the one before the command
+         */
+        default void onIgnored(int agent, Rejection reason, int xpos, int ypos, Direction dir) {
+        }
+    }
+
+    private static final Listener NONE = new Listener() {
+    };
+
+    private static final Direction[] DIRECTIONS = Direction.VALUES;
+    private static final int[] DX = Direction.DX;
+    private static final int[] DY = Direction.DY;
+    // Direction of an agent which is not placed yet
+    private static final byte NOT_PLACED = -1;
+
+    private final Grid grid;
+    // Direction after n right turns, indexed by ordinal * 8 + n
+    private final int[] rotate;
+    private final long[] occupied;
+    private final long rowSize;
+
+    private int size;
+    private int[] xpos;
+    private int[] ypos;
+    private byte[] dir;
+    private int[] pc;
+    private int[] end;
+    private int[] code = new int[64];
+    private int codeLength;
+
+    public Swarm(Grid grid, boolean collisions) {
+        this(grid, collisions, 16);
+    }
+
+    /**
+     * The capacity is the no of agents expected, more can be added.
+     * Collisions need one bit per position of the grid.
+     */
+    public Swarm(Grid grid, boolean collisions, int capacity) {
+        this.grid = grid;
+        this.rotate = grid.isDiagonal() ? Direction.ROTATE_8 : Direction.ROTATE_4;
+        this.rowSize = grid.getWidth() + 1L;
+        if (collisions) {
+            long cells = rowSize * (grid.getHeight() + 1L);
+            if ((cells + 63) >>> 6 > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException(String.format("Grid [%s] is too large to track collisions", grid));
+            }
+            this.occupied = new long[(int) ((cells + 63) >>> 6)];
+        } else {
+            this.occupied = null;
+        }
+        capacity = Math.max(capacity, 1);
+        xpos = new int[capacity];
+        ypos = new int[capacity];
+        dir = new byte[capacity];
+        pc = new int[capacity];
+        end = new int[capacity];
+    }
+
+    /**
+     * Adds an agent which runs the given program, returning its index.
+     * The program can not be run-length encoded
+     */
+    public int addAgent(Program program) {
+        if (program.isCompressed()) {
+            throw new IllegalArgumentException("Agents run one command per tick, the program can not be compressed");
+        }
+        if (size == xpos.length) {
+            int capacity = size << 1;
+            xpos = Arrays.copyOf(xpos, capacity);
+            ypos = Arrays.copyOf(ypos, capacity);
+            dir = Arrays.copyOf(dir, capacity);
+            pc = Arrays.copyOf(pc, capacity);
+            end = Arrays.copyOf(end, capacity);
+        }
+        if (codeLength + program.length() > code.length) {
+            code = Arrays.copyOf(code, Math.max(code.length << 1, codeLength + program.length()));
+        }
+        System.arraycopy(program.code(), 0, code, codeLength, program.length());
+        dir[size] = NOT_PLACED;
+        pc[size] = codeLength;
+        codeLength += program.length();
+        end[size] = codeLength;
+        return size++;
+    }
+
+    /**
+     * No of agents
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Runs ticks until all the agents have run their programs,
+     * returning the no of ticks
+     */
+    public int run(Listener listener) {
+        int ticks = 0;
+        while (tick(listener) > 0) {
+            ticks++;
+        }
+        return ticks;
+    }
+
+    /**
+     * Executes the next command of every agent,
+     * returning the no of agents which executed a command
+     */
+    public int tick() {
+        return tick(NONE);
+    }
+
+    /**
+     * Executes the next command of every agent,
+     * returning the no of agents which executed a command
+     */
+    public int tick(Listener listener) {
+        final int[] code = this.code, xpos = this.xpos, ypos = this.ypos, pc = this.pc, end = this.end;
+        final byte[] dir = this.dir;
+        final int[] rotate = this.rotate;
+        final Grid grid = this.grid;
+        final int maxX = grid.getWidth(), maxY = grid.getHeight();
+        final boolean walls = grid.hasWalls();
+        int active = 0;
+        for (int agent = 0; agent < size; agent++) {
+            int at = pc[agent];
+            if (at >= end[agent]) {
+                continue;
+            }
+            active++;
+            int op = code[at++];
+            int d = dir[agent];
+            switch (op & Program.OP_MASK) {
+                case Program.OP_PLACE:
+                    int placeX = code[at++];
+                    int placeY = code[at++];
+                    // re-placing an agent on its own cell neither collides nor moves it
+                    if (occupied != null && !(d != NOT_PLACED && placeX == xpos[agent] && placeY == ypos[agent])) {
+                        if (isOccupied(placeX, placeY)) {
+                            listener.onIgnored(agent, Rejection.COLLISION, xpos[agent], ypos[agent], d == NOT_PLACED ? null : DIRECTIONS[d]);
+                            break;
+                        }
+                        if (d != NOT_PLACED) {
+                            flip(xpos[agent], ypos[agent]);
+                        }
+                        flip(placeX, placeY);
+                    }
+                    xpos[agent] = placeX;
+                    ypos[agent] = placeY;
+                    dir[agent] = (byte) (op >>> Program.OP_BITS);
+                    break;
+
+                case Program.OP_MOVE:
+                    if (d == NOT_PLACED) {
+                        break;
+                    }
+                    int nextX = xpos[agent] + DX[d];
+                    int nextY = ypos[agent] + DY[d];
+                    if (!(Grid.within(nextX, maxX) & Grid.within(nextY, maxY))) {
+                        listener.onIgnored(agent, Rejection.OFF_GRID, xpos[agent], ypos[agent], DIRECTIONS[d]);
+                        break;
+                    }
+                    if (walls && grid.isWall(nextX, nextY)) {
+                        listener.onIgnored(agent, Rejection.WALL, xpos[agent], ypos[agent], DIRECTIONS[d]);
+                        break;
+                    }
+                    if (occupied != null) {
+                        if (isOccupied(nextX, nextY)) {
+                            listener.onIgnored(agent, Rejection.COLLISION, xpos[agent], ypos[agent], DIRECTIONS[d]);
+                            break;
+                        }
+                        flip(xpos[agent], ypos[agent]);
+                        flip(nextX, nextY);
+                    }
+                    xpos[agent] = nextX;
+                    ypos[agent] = nextY;
+                    break;
+
+                case Program.OP_LEFT:
+                case Program.OP_RIGHT:
+                case Program.OP_TURN:
+                    if (d != NOT_PLACED) {
+                        dir[agent] = (byte) rotate[d * 8 + Program.rightTurns(op)];
+                    }
+                    break;
+
+                case Program.OP_REPORT:
+                    if (d != NOT_PLACED) {
+                        listener.onReport(agent, xpos[agent], ypos[agent], DIRECTIONS[d]);
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+            pc[agent] = at;
+        }
+        return active;
+    }
+
+    public int getX(int agent) {
+        return xpos[checkAgent(agent)];
+    }
+
+    public int getY(int agent) {
+        return ypos[checkAgent(agent)];
+    }
+
+    /**
+     * Direction of the agent, null if it is not placed yet
+     */
+    public Direction getDirection(int agent) {
+        int d = dir[checkAgent(agent)];
+        return d == NOT_PLACED ? null : DIRECTIONS[d];
+    }
+
+    /**
+     * Checks if an agent is at the given position. Only
+     * available when collisions are enabled
+     */
+    public boolean isOccupied(int x, int y) {
+        if (occupied == null) {
+            throw new IllegalStateException("Collisions are not enabled");
+        }
+        long bit = y * rowSize + x;
+        return (occupied[(int) (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    private void flip(int x, int y) {
+        long bit = y * rowSize + x;
+        occupied[(int) (bit >>> 6)] ^= 1L << bit;
+    }
+
+    private int checkAgent(int agent) {
+        if (agent < 0 || agent >= size) {
+            throw new IndexOutOfBoundsException(String.format("Agent [%d] is not in [0, %d)", agent, size));
+        }
+        return agent;
+    }
+}
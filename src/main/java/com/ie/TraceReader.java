@@ -0,0 +1,244 @@
+package com.ie;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+
+/**
+ * Reads a trace written by {@link TraceWriter}, decoding each scenario
+ * straight into a {@link Program} which can be executed, without any
+ * Strings. The scenarios are memory mapped in windows, so the trace can
+ * be larger than 2GB, while the header, index and trailer are read as needed.
+ *
+ * Scenarios are read in order with {@link #next(Program)}, and
+ * {@link #seek(long)} moves to any scenario using the index.
+ *
+ * @author sundeep
+ *
+ */
+public final class TraceReader implements Closeable {
+
+    static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int windowSize;
+    private final Grid grid;
+    private final long walls;
+    private final int stride;
+    private final long scenarios;
+    private final long indexOffset;
+    private long scenario;
+    // The mapped window of the bitstream, covering the file from windowStart to windowEnd
+    private MappedByteBuffer buf;
+    private long windowStart;
+    private long windowEnd;
+    // Position of the next byte of the bitstream, and the bits read but not used
+    private long pos;
+    private long window;
+    private int bits;
+
+    public TraceReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * The window size limits the amount of the file mapped at a time
+     */
+    TraceReader(Path file, int windowSize) throws IOException {
+        this.file = file;
+        this.windowSize = windowSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < TraceWriter.HEADER_SIZE + TraceWriter.TRAILER_SIZE) {
+                throw new IOException(String.format("%s is not a trace of a supported size", file));
+            }
+            ByteBuffer header = read(0, TraceWriter.HEADER_SIZE);
+            long trailer = size - TraceWriter.TRAILER_SIZE;
+            ByteBuffer tail = read(trailer, TraceWriter.TRAILER_SIZE);
+            if (header.getInt(0) != TraceWriter.MAGIC || tail.getInt(16) != TraceWriter.MAGIC) {
+                throw new IOException(String.format("%s is not a trace", file));
+            }
+            grid = new Grid(header.getInt(4), header.getInt(8), (header.getInt(12) & TraceWriter.FLAG_DIAGONAL) != 0);
+            stride = header.getInt(16);
+            walls = header.getLong(20);
+            scenarios = tail.getLong(0);
+            long index = tail.getLong(8);
+            if (stride < 1 || scenarios < 0 || index < TraceWriter.HEADER_SIZE || index + (scenarios + stride - 1) / stride * 8 != trailer) {
+                throw new IOException(String.format("%s is a corrupt trace", file));
+            }
+            indexOffset = index;
+            pos = TraceWriter.HEADER_SIZE;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Size of the grid the scenarios were compiled for, and whether it
+     * allows the diagonal directions. Its walls are not kept in the trace
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Whether the grid the scenarios were compiled for has walls
+     */
+    public boolean hasWalls() {
+        return walls != 0;
+    }
+
+    /**
+     * Checks if the scenarios were compiled for the given grid, walls included
+     */
+    public boolean isFor(Grid grid) {
+        return grid.getWidth() == this.grid.getWidth() && grid.getHeight() == this.grid.getHeight()
+                && grid.isDiagonal() == this.grid.isDiagonal() && grid.wallChecksum() == walls;
+    }
+
+    public long getScenarios() {
+        return scenarios;
+    }
+
+    /**
+     * Moves to the given scenario, so that it is the next one read
+     */
+    public void seek(long scenario) throws IOException {
+        if (scenario < 0 || scenario > scenarios) {
+            throw new IndexOutOfBoundsException(String.format("Scenario [%d] is not in [0, %d]", scenario, scenarios));
+        }
+        long block = scenario / stride;
+        if (block * stride < scenarios) {
+            long bitOffset = read(indexOffset + block * 8, 8).getLong(0);
+            pos = TraceWriter.HEADER_SIZE + (bitOffset >>> 3);
+            window = 0;
+            bits = 0;
+            readBits((int) (bitOffset & 7));
+            this.scenario = block * stride;
+        }
+        while (this.scenario < scenario) {
+            next(null);
+        }
+    }
+
+    /**
+     * Decodes the next scenario into the given program, which is cleared
+     * first. Returns false at the end of the trace. A null program skips
+     * the scenario
+     */
+    public boolean next(Program program) throws IOException {
+        if (scenario == scenarios) {
+            return false;
+        }
+        if (program != null) {
+            program.clear();
+        }
+        while (true) {
+            int code = readBits(2);
+            if (code == TraceWriter.MOVE) {
+                emit(program, Command.MOVE);
+            } else if (code == TraceWriter.LEFT) {
+                emit(program, Command.LEFT);
+            } else if (code == TraceWriter.RIGHT) {
+                emit(program, Command.RIGHT);
+            } else if (readBits(1) == 0) {
+                emit(program, Command.REPORT);
+            } else if (readBits(1) == 0) {
+                int xpos = readVarint();
+                int ypos = readVarint();
+                int dir = readBits(3);
+                if (program != null) {
+                    program.place(xpos, ypos, DIRECTIONS[dir]);
+                }
+            } else if (readBits(1) == 0) {
+                boolean left = readBits(1) == 1;
+                int turns = readBits(Program.TURN_BITS);
+                if (program != null) {
+                    program.turn(left ? Command.LEFT : Command.RIGHT, left ? -turns : turns);
+                }
+            } else {
+                scenario++;
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static void emit(Program program, Command cmd) {
+        if (program != null) {
+            program.emit(cmd);
+        }
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += TraceWriter.VARINT_BITS) {
+            int group = readBits(TraceWriter.VARINT_BITS + 1);
+            value |= (group & ((1 << TraceWriter.VARINT_BITS) - 1)) << shift;
+            if ((group >>> TraceWriter.VARINT_BITS) == 0) {
+                return value;
+            }
+        }
+        throw new IOException(String.format("%s is a corrupt trace, varint at byte %d is too long", file, pos));
+    }
+
+    /**
+     * Maps the window of the bitstream starting at the given position
+     */
+    private void map(long position) throws IOException {
+        int len = (int) Math.min(windowSize, indexOffset - position);
+        buf = channel.map(FileChannel.MapMode.READ_ONLY, position, len);
+        windowStart = position;
+        windowEnd = position + len;
+    }
+
+    /**
+     * Reads length bytes at the given position of the file, outside the bitstream
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) {
+                throw new IOException(String.format("%s is a corrupt trace, it ends at byte %d", file, position + bytes.position()));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the next n bits, lowest bit first
+     */
+    private int readBits(int n) throws IOException {
+        while (bits < n) {
+            if (pos == indexOffset) {
+                throw new IOException(String.format("%s is a corrupt trace, scenario %d runs into the index", file, scenario));
+            }
+            if (pos >= windowEnd || pos < windowStart) {
+                map(pos);
+            }
+            window |= (buf.get((int) (pos++ - windowStart)) & 0xffL) << bits;
+            bits += 8;
+        }
+        int value = (int) (window & ((1L << n) - 1));
+        window >>>= n;
+        bits -= n;
+        return value;
+    }
+}
@@ -0,0 +1,226 @@
+package com.ie;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes compiled scenarios as a compact binary trace, which is read
+ * back by {@link TraceReader}. The trace holds the valid commands of
+ * each scenario, compiled for a given grid, as a bitstream -
+ * - MOVE, LEFT and RIGHT take 2 bits and REPORT 3 bits
+ * - PLACE takes 4 bits, then x and y as varints of 3 bit groups
+ *   with a continuation bit, then the direction in 3 bits
+ * - a LEFT or RIGHT by a given amount takes 5 bits, then a bit set for
+ *   LEFT, then the amount in 3 bits, modulo 8, so it is read back as it was
+ * - every scenario ends with a 5 bit END
+ *
+ * The bit offset of every {@link #DEFAULT_STRIDE}th scenario is kept in
+ * an index at the end of the trace, for random access to a scenario.
+ * Rejected commands are not kept, so their messages can not be replayed.
+ *
+ * Layout, little endian -
+ * - header : magic, grid width, grid height, flags, index stride,
+ *   checksum of the walls of the grid
+ * - the bitstream, padded to a byte
+ * - index : the bit offset of every stride-th scenario, as longs
+ * - trailer : no of scenarios, offset of the index, magic
+ *
+ * @author sundeep
+ *
+ */
+public final class TraceWriter implements Closeable {
+
+    // "PTR3"
+    static final int MAGIC = 0x33525450;
+    static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 4 + 8;
+    static final int TRAILER_SIZE = 8 + 8 + 4;
+    static final int FLAG_DIAGONAL = 1;
+    static final int DEFAULT_STRIDE = 64;
+
+    // Codes of the commands, read 2 bits first then one bit at a time
+    static final int MOVE = 0, LEFT = 1, RIGHT = 2, ESCAPE = 3;
+    static final int REPORT = ESCAPE, REPORT_BITS = 3;
+    static final int PLACE = ESCAPE | 1 << 2, PLACE_BITS = 4;
+    static final int TURN = ESCAPE | 1 << 2 | 1 << 3, TURN_BITS = 5;
+    static final int END = ESCAPE | 1 << 2 | 1 << 3 | 1 << 4, END_BITS = 5;
+    static final int VARINT_BITS = 3;
+
+    private final WritableByteChannel channel;
+    private final int stride;
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private long[] index = new long[64];
+    private long scenarios;
+    // Bits not yet written, and their no
+    private long window;
+    private int bits;
+    private long bitOffset;
+    private long bytesWritten;
+
+    /**
+     * Writes a trace of scenarios compiled for the given grid to the channel
+     */
+    public TraceWriter(WritableByteChannel channel, Grid grid) throws IOException {
+        this(channel, grid, DEFAULT_STRIDE);
+    }
+
+    TraceWriter(WritableByteChannel channel, Grid grid, int stride) throws IOException {
+        if (stride < 1) {
+            throw new IllegalArgumentException(String.format("Index stride [%d] must be at least 1", stride));
+        }
+        this.channel = channel;
+        this.stride = stride;
+        buf.putInt(MAGIC).putInt(grid.getWidth()).putInt(grid.getHeight()).putInt(grid.isDiagonal() ? FLAG_DIAGONAL : 0).putInt(stride)
+                .putLong(grid.wallChecksum());
+    }
+
+    /**
+     * Converts a file of scenarios, one scenario per line with the commands
+     * separated by {@code :::}, into a trace for the given grid. Returns
+     * the no of scenarios converted
+     */
+    public static long convert(Path text, Path trace, Grid grid) throws IOException {
+        Program program = new Program(256);
+        try (BufferedReader reader = Files.newBufferedReader(text, StandardCharsets.UTF_8);
+                FileChannel out = FileChannel.open(trace, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                TraceWriter writer = new TraceWriter(out, grid)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                program.clear();
+                CommandLexer.compileScenario(line, 0, line.length(), grid, program);
+                writer.write(program);
+            }
+            return writer.getScenarios();
+        }
+    }
+
+    public long getScenarios() {
+        return scenarios;
+    }
+
+    /**
+     * Appends a scenario, given its compiled commands, which
+     * can not be compressed
+     */
+    public void write(Program program) throws IOException {
+        if (program.isCompressed()) {
+            throw new IllegalArgumentException("Compressed programs can not be written to a trace");
+        }
+        if (scenarios % stride == 0) {
+            int block = (int) (scenarios / stride);
+            if (block == index.length) {
+                index = Arrays.copyOf(index, block << 1);
+            }
+            index[block] = bitOffset;
+        }
+        int[] code = program.code();
+        int length = program.length();
+        int pc = 0;
+        while (pc < length) {
+            int op = code[pc++];
+            switch (op & Program.OP_MASK) {
+                case Program.OP_PLACE:
+                    writeBits(PLACE, PLACE_BITS);
+                    writeVarint(code[pc++]);
+                    writeVarint(code[pc++]);
+                    writeBits(op >>> Program.OP_BITS, 3);
+                    break;
+                case Program.OP_MOVE:
+                    writeBits(MOVE, 2);
+                    break;
+                case Program.OP_LEFT:
+                    writeBits(LEFT, 2);
+                    break;
+                case Program.OP_RIGHT:
+                    writeBits(RIGHT, 2);
+                    break;
+                case Program.OP_REPORT:
+                    writeBits(REPORT, REPORT_BITS);
+                    break;
+                default:
+                    writeBits(TURN, TURN_BITS);
+                    if (Program.isLeft(op)) {
+                        writeBits(1, 1);
+                        writeBits(-Program.rightTurns(op) & Program.TURN_MASK, Program.TURN_BITS);
+                    } else {
+                        writeBits(0, 1);
+                        writeBits(Program.rightTurns(op), Program.TURN_BITS);
+                    }
+                    break;
+            }
+        }
+        writeBits(END, END_BITS);
+        scenarios++;
+    }
+
+    /**
+     * Writes the index and the trailer. The channel is not closed
+     */
+    @Override
+    public void close() throws IOException {
+        while (bits > 0) {
+            putByte();
+        }
+        long indexOffset = bytesWritten + buf.position();
+        int blocks = (int) ((scenarios + stride - 1) / stride);
+        for (int i = 0; i < blocks; i++) {
+            ensureRemaining(8);
+            buf.putLong(index[i]);
+        }
+        ensureRemaining(TRAILER_SIZE);
+        buf.putLong(scenarios).putLong(indexOffset).putInt(MAGIC);
+        flush();
+    }
+
+    private void writeVarint(int value) throws IOException {
+        do {
+            int group = value & ((1 << VARINT_BITS) - 1);
+            value >>>= VARINT_BITS;
+            writeBits(value == 0 ? group : group | 1 << VARINT_BITS, VARINT_BITS + 1);
+        } while (value != 0);
+    }
+
+    /**
+     * Appends the low n bits of the value, lowest bit first
+     */
+    private void writeBits(int value, int n) throws IOException {
+        window |= (long) value << bits;
+        bits += n;
+        bitOffset += n;
+        while (bits >= 8) {
+            putByte();
+        }
+    }
+
+    private void putByte() throws IOException {
+        ensureRemaining(1);
+        buf.put((byte) window);
+        window >>>= 8;
+        bits = Math.max(bits - 8, 0);
+    }
+
+    private void ensureRemaining(int size) throws IOException {
+        if (buf.remaining() < size) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buf.flip();
+        bytesWritten += buf.remaining();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
@@ -0,0 +1,78 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@code com.ie.BatchRunner}
+ *
+ * @author sundeep
+ *
+ */
+public class BatchRunnerTest {
+
+    private static final String EXPECTED = "Output: 0, 1, NORTH\n"
+            + "Output: 0, 0, WEST\n"
+            + "Output: 3, 3, NORTH\n"
+            + "Output: 3, 4, NORTH\n"
+            + "Output: 2, 3, SOUTH\n"
+            + "Output: 4, 1, EAST\n"
+            + "Output: 4, 2, EAST\n"
+            + "Output: 1, 1, NORTH\n"
+            + "Output: 4, 3, SOUTH\n"
+            + "Output: NONE\n"
+            + "Output: NONE\n"
+            + "Output: NONE\n"
+            + "Output: NONE\n"
+            + "Output: NONE\n"
+            + "Output: NONE\n"
+            + "Output: NONE\n"
+            + "Output: NONE\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public final void testRunScenarioFile() throws Exception {
+        assertEquals(EXPECTED, run(new BatchRunner(), Paths.get("src/test/resources/Pacman.txt")));
+    }
+
+    @Test
+    public final void testRunWithSmallWindows() throws Exception {
+        assertEquals(EXPECTED, run(new BatchRunner(Grid.DEFAULT, 160), Paths.get("src/test/resources/Pacman.txt")));
+    }
+
+    @Test
+    public final void testRunWithoutTrailingNewline() throws Exception {
+        Path input = folder.newFile("scenarios.txt").toPath();
+        Files.write(input, "place 0,0,north ::: move ::: report\r\nPLACE 1,2,EAST ::: MOVE ::: report ::: move".getBytes(StandardCharsets.US_ASCII));
+        assertEquals("Output: 0, 1, NORTH\nOutput: 2, 2, EAST\n", run(new BatchRunner(), input));
+    }
+
+    @Test
+    public final void testInvalidPlaceCommands() throws Exception {
+        Path input = folder.newFile("scenarios.txt").toPath();
+        Files.write(input, ("place 1,2 ::: report\n"
+                + "place ,1,north ::: report\n"
+                + "place 99999999999,1,north ::: report\n"
+                + "place,1,2,north ::: report\n"
+                + "place 1,2,north,, ::: move ::: report\n").getBytes(StandardCharsets.US_ASCII));
+        assertEquals("Output: NONE\nOutput: NONE\nOutput: NONE\nOutput: NONE\nOutput: 1, 3, NORTH\n", run(new BatchRunner(), input));
+    }
+
+    private String run(BatchRunner runner, Path input) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        runner.run(input, Channels.newChannel(out));
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+}
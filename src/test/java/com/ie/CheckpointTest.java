@@ -0,0 +1,179 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@code com.ie.Checkpoint}, resuming streaming simulations
+ * which died part way through their input
+ *
+ * @author sundeep
+ *
+ */
+public class CheckpointTest {
+
+    private static final String[] COMMANDS = { "move", "move", "left", "right", "report", "right 3", "jump", "place 2,2,south", "place 9,9,north" };
+    private static final int LINES = 500;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public final void testResumeAtCheckpoint() throws Exception {
+        byte[] input = input(new Random(3));
+        Path file = folder.newFile().toPath();
+        String expected = run(input, input.length, null);
+
+        // dies right after the checkpoint at 200 commands
+        String beforeCrash = run(input, offsetOfLine(input, 200), file);
+        String afterResume = run(input, input.length, file);
+        assertEquals(expected, beforeCrash + afterResume);
+        assertEquals(0, Files.size(file));
+    }
+
+    @Test
+    public final void testResumeReplaysSinceCheckpoint() throws Exception {
+        byte[] input = input(new Random(5));
+        Path file = folder.newFile().toPath();
+        SimulationResult expected = simulate(input, input.length, null);
+
+        // dies between two checkpoints, and once more while resuming
+        simulate(input, offsetOfLine(input, 237), file);
+        simulate(input, offsetOfLine(input, 412), file);
+        SimulationResult result = simulate(input, input.length, file);
+        assertEquals(expected.getFinalX(), result.getFinalX());
+        assertEquals(expected.getFinalY(), result.getFinalY());
+        assertEquals(expected.getFinalDirection(), result.getFinalDirection());
+        assertEquals(expected.isMissingReport(), result.isMissingReport());
+    }
+
+    @Test
+    public final void testTornCheckpoint() throws Exception {
+        Path file = folder.newFile().toPath();
+        int[] state = new int[CommandPipeline.STATE_SIZE];
+        try (Checkpoint checkpoint = new Checkpoint(file, 10, false)) {
+            state[0] = 1;
+            checkpoint.save(10, state);
+            state[0] = 2;
+            checkpoint.save(20, state);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            // the second checkpoint went to the first slot
+            raf.seek(30);
+            raf.write(0xff);
+        }
+        try (Checkpoint checkpoint = new Checkpoint(file, 10, false)) {
+            assertEquals(10, checkpoint.load(state));
+            assertEquals(1, state[0]);
+            checkpoint.clear();
+            assertEquals(-1, checkpoint.load(state));
+        }
+    }
+
+    @Test
+    public final void testCheckpointForAnotherGrid() throws Exception {
+        byte[] input = input(new Random(7));
+        Path file = folder.newFile().toPath();
+        simulate(input, offsetOfLine(input, 100), file);
+        try (Checkpoint checkpoint = new Checkpoint(file, 10)) {
+            PacmanSimulator.runPacmanSimulator(new ByteArrayInputStream(input), new Grid(10, 10), new SimulationResult(), 0, checkpoint);
+            fail("Resumed on another grid");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("10x10"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testInvalidInterval() throws Exception {
+        new Checkpoint(folder.newFile().toPath(), 0).close();
+    }
+
+    private byte[] input(Random random) {
+        StringBuilder sb = new StringBuilder("place 0,0,north\n");
+        for (int i = 1; i < LINES; i++) {
+            sb.append(COMMANDS[random.nextInt(COMMANDS.length)]).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private int offsetOfLine(byte[] input, int line) {
+        int at = 0;
+        for (int n = 0; n < line; n++) {
+            while (input[at++] != '\n') {
+                continue;
+            }
+        }
+        return at;
+    }
+
+    /**
+     * Runs the input with the console output, stopping with an
+     * IOException after the given no of bytes if it is short
+     */
+    private String run(byte[] input, int crashAt, Path file) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        run(input, crashAt, file, new ConsoleListener(new PrintStream(out, true, "UTF-8"), false));
+        return out.toString("UTF-8");
+    }
+
+    private SimulationResult simulate(byte[] input, int crashAt, Path file) throws Exception {
+        SimulationResult result = new SimulationResult();
+        run(input, crashAt, file, result);
+        return result;
+    }
+
+    private void run(byte[] input, int crashAt, Path file, SimulationListener listener) throws Exception {
+        try (Checkpoint checkpoint = file == null ? null : new Checkpoint(file, 10, false)) {
+            PacmanSimulator.runPacmanSimulator(new CrashingStream(input, crashAt), Grid.DEFAULT, listener, 0, checkpoint);
+            assertEquals(input.length, crashAt);
+        } catch (IOException e) {
+            assertTrue(crashAt < input.length);
+        }
+    }
+
+    /**
+     * Fails once the given no of bytes are read
+     */
+    private static final class CrashingStream extends InputStream {
+
+        private final InputStream in;
+        private int remaining;
+
+        CrashingStream(byte[] input, int crashAt) {
+            this.in = new ByteArrayInputStream(input);
+            this.remaining = crashAt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n <= 0 && in.available() > 0) {
+                throw new IOException("Crashed");
+            }
+            remaining -= Math.max(n, 0);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.ie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Unit tests for {@code com.ie.CommandLexer}
+ *
+ * @author sundeep
+ *
+ */
+public class CommandLexerTest {
+
+    @Test
+    public final void testCommands() {
+        Program expected = new Program();
+        expected.emit(Command.MOVE);
+        assertAccepted("move", true, expected);
+        expected.clear();
+        expected.emit(Command.REPORT);
+        assertAccepted("  Report ", true, expected);
+        expected.clear();
+        expected.turn(Command.LEFT, -2);
+        assertAccepted("left 10", true, expected);
+        expected.clear();
+        expected.place(2, 3, Direction.SOUTH);
+        assertAccepted("place 2 , 3 , south", false, expected);
+        expected.clear();
+        expected.place(0, 0, Direction.NORTH);
+        assertAccepted("PLACE 0,0,NORTH,,", false, expected);
+    }
+
+    @Test
+    public final void testRejections() {
+        assertRejected("mvoe", true, Rejection.INVALID_COMMAND);
+        assertRejected("", true, Rejection.INVALID_COMMAND);
+        assertRejected("place1,2,north", true, Rejection.INVALID_COMMAND);
+        assertRejected("left -1", true, Rejection.INVALID_COMMAND);
+        assertRejected("move", false, Rejection.NOT_PLACED);
+        assertRejected("right 3", false, Rejection.NOT_PLACED);
+        assertRejected("place", false, Rejection.PLACE_USAGE);
+        assertRejected("place 1,2", false, Rejection.PLACE_USAGE);
+        assertRejected("place 1,,north", false, Rejection.PLACE_NOT_NUMERIC);
+        assertRejected("place -1,0,north", false, Rejection.PLACE_NOT_NUMERIC);
+        assertRejected("place 6,0,north", false, Rejection.PLACE_OUTSIDE_GRID);
+        assertRejected("place 2147483648,0,north", false, Rejection.PLACE_OUTSIDE_GRID);
+        assertRejected("place 0,0,up", false, Rejection.PLACE_INVALID_DIRECTION);
+        assertRejected("place 0,0,northeast", false, Rejection.PLACE_INVALID_DIRECTION);
+        assertRejected("place 9,9,up,x", false, Rejection.PLACE_USAGE, Rejection.PLACE_OUTSIDE_GRID, Rejection.PLACE_INVALID_DIRECTION);
+    }
+
+    @Test
+    public final void testBytes() {
+        String cmds = "move:::place 1,2,north:::jump";
+        CommandLexer.Bytes bytes = new CommandLexer.Bytes().wrap(cmds.getBytes(StandardCharsets.US_ASCII));
+        Program program = new Program();
+        Program expected = new Program();
+        expected.emit(Command.MOVE);
+        expected.place(1, 2, Direction.NORTH);
+        assertEquals(CommandLexer.ACCEPTED, CommandLexer.compile(bytes, 0, 4, true, Grid.DEFAULT, program));
+        assertEquals(CommandLexer.ACCEPTED, CommandLexer.compile(bytes, 7, 22, false, Grid.DEFAULT, program));
+        assertTrue(CommandLexer.isRejected(CommandLexer.compile(bytes, 25, 29, true, Grid.DEFAULT, program), Rejection.INVALID_COMMAND));
+        assertArrayEquals(code(expected), code(program));
+        assertEquals(cmds, bytes.toString());
+    }
+
+    @Test
+    public final void testScanning() {
+        assertTrue(CommandLexer.isBlank(" \t"));
+        assertFalse(CommandLexer.isBlank(" x"));
+        assertTrue(CommandLexer.isCommand(" report ", Command.REPORT));
+        assertFalse(CommandLexer.isCommand("report 1", Command.REPORT));
+        assertTrue(CommandLexer.contains("replace", Command.PLACE));
+        assertFalse(CommandLexer.contains("plac", Command.PLACE));
+    }
+
+    private void assertAccepted(String cmd, boolean isPlaced, Program expected) {
+        Program program = new Program();
+        assertEquals(cmd, CommandLexer.ACCEPTED, CommandLexer.compile(cmd, 0, cmd.length(), isPlaced, Grid.DEFAULT, program));
+        assertArrayEquals(cmd, code(expected), code(program));
+    }
+
+    private int[] code(Program program) {
+        return Arrays.copyOf(program.code(), program.length());
+    }
+
+    private void assertRejected(String cmd, boolean isPlaced, Rejection... reasons) {
+        Program program = new Program();
+        int result = CommandLexer.compile(cmd, 0, cmd.length(), isPlaced, Grid.DEFAULT, program);
+        int expected = 0;
+        for (Rejection reason : reasons) {
+            assertTrue(cmd + " " + reason, CommandLexer.isRejected(result, reason));
+            expected |= 1 << reason.ordinal();
+        }
+        assertEquals(cmd, expected, result);
+        assertTrue(program.isEmpty());
+    }
+}
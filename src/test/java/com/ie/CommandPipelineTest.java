@@ -0,0 +1,86 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Unit tests for {@code com.ie.CommandPipeline}, comparing the single
+ * pass simulation with {@code PacmanSimulator.runPacmanSimulator}
+ *
+ * @author sundeep
+ *
+ */
+public class CommandPipelineTest {
+
+    private static final String[] COMMANDS = { "move", "MOVE", "left", "right", "report", "left 3", "right 2", "jump", "", "place 1,2,north",
+        "PLACE 4,4,WEST", "place 7,1,north", "place 1,1,up", "place a,1,north", " place 0 , 5 , south " };
+
+    @Test
+    public final void testSameAsReferenceForScenarios() throws Exception {
+        for (String scenario : Files.readAllLines(Paths.get("src/test/resources/Pacman.txt"), StandardCharsets.US_ASCII)) {
+            assertSame(Arrays.asList(scenario.split(":::")));
+        }
+    }
+
+    @Test
+    public final void testSameAsReferenceForRandomScripts() throws Exception {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++) {
+            List<String> cmds = new ArrayList<String>();
+            int length = random.nextInt(45);
+            for (int n = 0; n < length; n++) {
+                cmds.add(COMMANDS[random.nextInt(COMMANDS.length)]);
+            }
+            assertSame(cmds);
+        }
+    }
+
+    @Test
+    public final void testCharSequences() {
+        List<StringBuilder> cmds = Arrays.asList(new StringBuilder("place 0,0,east"), new StringBuilder("move"), new StringBuilder("report"));
+        SimulationResult result = new SimulationResult();
+        PacmanSimulator.runSinglePass(cmds, Grid.DEFAULT, result);
+        assertEquals("Output: 1, 0, EAST" + System.lineSeparator(), result.toString());
+        assertFalse(result.isMissingReport());
+    }
+
+    private void assertSame(List<String> cmds) throws Exception {
+        SimulationResult expected = PacmanSimulator.simulate(cmds);
+        SimulationResult result = new SimulationResult();
+        PacmanSimulator.runSinglePass(cmds, Grid.DEFAULT, result);
+        assertEquals(cmds.toString(), expected.toString(), result.toString());
+        assertEquals(expected.isCompleted(), result.isCompleted());
+        assertEquals(expected.getFinalX(), result.getFinalX());
+        assertEquals(expected.getFinalY(), result.getFinalY());
+        assertEquals(expected.getFinalDirection(), result.getFinalDirection());
+        assertEquals(expected.isMissingPlace(), result.isMissingPlace());
+        assertEquals(expected.isMissingReport(), result.isMissingReport());
+        assertEquals(expected.isLimitExceeded(), result.isLimitExceeded());
+        for (Rejection reason : Rejection.values()) {
+            assertEquals(expected.getRejections(reason), result.getRejections(reason));
+        }
+
+        // the same console output, with and without the echo
+        for (boolean echo : new boolean[] { true, false }) {
+            ByteArrayOutputStream reference = new ByteArrayOutputStream();
+            PacmanSimulator.runPacmanSimulator(cmds, Grid.DEFAULT, new ConsoleListener(new PrintStream(reference, true, "UTF-8"), echo));
+            ByteArrayOutputStream single = new ByteArrayOutputStream();
+            PacmanSimulator.runSinglePass(cmds, Grid.DEFAULT, new ConsoleListener(new PrintStream(single, true, "UTF-8"), echo));
+            assertEquals(cmds.toString(), reference.toString("UTF-8"), single.toString("UTF-8"));
+        }
+    }
+}
@@ -0,0 +1,599 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+import com.ie.SimulationCache.Eviction;
+import com.ie.SimulationCache.Mode;
+
+/**
+ * Fuzzes random and mutated scripts through every execution path, checking
+ * each one against {@code PacmanSimulator.runPacmanSimulator}, the reference -
+ * - runSinglePass, streaming, cached (both modes) and compiled programs,
+ *   compressed or not, per script
+ * - BatchRunner, binary trace replay and SimulationEngine over many scripts
+ *
+ * Besides the reports, final position and counts, each path has to give
+ * the same index, position and count for every ignored MOVE, and the
+ * console output of the paths taking a list, the single pass included,
+ * has to be the same. As every
+ * path parses with CommandLexer, the reference is itself checked against
+ * a separate, regular expression based parse of the script.
+ *
+ * A failing script is shrunk to a minimal counterexample before it is
+ * reported. The no of scripts and the seed are set with -Dfuzz.scripts
+ * and -Dfuzz.seed, eg. {@code mvn test -Dtest=DifferentialFuzzTest
+ * -Dfuzz.scripts=2000000}. The throughput is printed to System.err, as
+ * PacmanSimulatorTest leaves System.out null.
+ *
+ * @author sundeep
+ *
+ */
+public class DifferentialFuzzTest {
+
+    private static final int SCRIPTS = Integer.getInteger("fuzz.scripts", 10000);
+    private static final long SEED = Long.getLong("fuzz.seed", 20261018L);
+    private static final Grid[] GRIDS = { Grid.DEFAULT, Grid.DEFAULT.withDiagonals(), new Grid(0, 3), new Grid(9, 2, true),
+        new Grid(1000000000, 1000000000), Grid.map("..#...", "......", ".##..#", "....#.", "#.....", "...#..").withDiagonals() };
+    private static final String[] DIRECTIONS = { "NORTH", "SOUTH", "EAST", "WEST", "NORTHEAST", "NORTHWEST", "SOUTHEAST", "SOUTHWEST",
+        "UP", "" };
+    private static final String[] BAD_NUMBERS = { "-1", "", "a", "99999999999", "2147483647", "007", "+1", " 1 2" };
+    // The parsing oracle, which does not share any code with CommandLexer
+    private static final Pattern COMMAND = Pattern.compile("PLACE|MOVE|LEFT|RIGHT|REPORT");
+    private static final Pattern TURN = Pattern.compile("(LEFT|RIGHT) [\\x00-\\x20]*[0-9]+");
+    private static final Pattern NUMBER = Pattern.compile("[0-9]+");
+    private static final Pattern DIRECTION = Pattern.compile("NORTH|SOUTH|EAST|WEST|(NORTH|SOUTH)(EAST|WEST)");
+    private static final Pattern DIAGONAL = Pattern.compile("(NORTH|SOUTH)(EAST|WEST)");
+    private static final Pattern TRAILING_COMMAS = Pattern.compile(",+$");
+    private static final BigInteger MAX_COORDINATE = BigInteger.valueOf(Integer.MAX_VALUE);
+    private static final SimulationCache[] SCENARIO_CACHES = caches(Mode.SCENARIO);
+    private static final SimulationCache[] PREFIX_CACHES = caches(Mode.PREFIX);
+    // BatchRunners are not thread safe, and have a large buffer
+    private static final ThreadLocal<BatchRunner[]> RUNNERS = ThreadLocal.withInitial(DifferentialFuzzTest::runners);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public final void testEveryPathMatchesReference() {
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        final LongAdder commands = new LongAdder();
+        long start = System.nanoTime();
+        IntStream.range(0, SCRIPTS).parallel().forEach(i -> {
+            if (failure.get() != null) {
+                return;
+            }
+            Random random = new Random(SEED * 31 + i);
+            final Grid grid = GRIDS[random.nextInt(GRIDS.length)];
+            List<String> script = script(random, grid);
+            commands.add(script.size());
+            String mismatch = check(script, grid);
+            if (mismatch != null) {
+                List<String> minimal = shrink(script, s -> check(s, grid) != null);
+                failure.compareAndSet(null, String.format("Script %d of seed %d on the %s grid %s: %s%nShrunk to %s: %s", i, SEED, grid, script,
+                        mismatch, minimal, check(minimal, grid)));
+            }
+        });
+        report("Fuzzed", SCRIPTS, commands.sum(), start);
+        assertNull(failure.get(), failure.get());
+    }
+
+    @Test
+    public final void testBatchAndTraceMatchReference() throws Exception {
+        int scripts = Math.max(SCRIPTS / 10, 1);
+        for (Grid grid : GRIDS) {
+            Random random = new Random(SEED ^ grid.hashCode());
+            List<List<String>> all = new ArrayList<List<String>>();
+            StringBuilder text = new StringBuilder();
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < scripts; i++) {
+                List<String> script = script(random, grid);
+                all.add(script);
+                text.append(String.join(":::", script)).append('\n');
+                expected.append(lastReport(PacmanSimulator.simulate(script, grid))).append('\n');
+            }
+            Path file = folder.newFile().toPath();
+            Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            new BatchRunner(grid).run(file, Channels.newChannel(batch));
+            assertEquals(grid.toString(), expected.toString(), batch.toString("US-ASCII"));
+
+            Path trace = folder.newFile().toPath();
+            TraceWriter.convert(file, trace, grid);
+            ByteArrayOutputStream replay = new ByteArrayOutputStream();
+            new BatchRunner(grid).replay(trace, Channels.newChannel(replay));
+            assertEquals(grid.toString(), expected.toString(), replay.toString("US-ASCII"));
+
+            try (SimulationEngine engine = new SimulationEngine()) {
+                List<SimulationResult> results = engine.simulate(all, grid);
+                for (int i = 0; i < all.size(); i++) {
+                    assertEquals(all.get(i).toString(), fingerprint(PacmanSimulator.simulate(all.get(i), grid), true),
+                            fingerprint(results.get(i), true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public final void testShrink() {
+        // fails when a MOVE is followed by a REPORT
+        Predicate<List<String>> fails = s -> {
+            List<String> cmds = new ArrayList<String>();
+            s.forEach(cmd -> cmds.add(cmd.trim().toUpperCase()));
+            return cmds.indexOf("MOVE") >= 0 && cmds.subList(cmds.indexOf("MOVE"), cmds.size()).contains("REPORT");
+        };
+        List<String> script = Arrays.asList("place 0,0,north", "left", " move ", "jump", "right", "move", "report", "left", "report");
+        assertEquals(Arrays.asList("MOVE", "REPORT"), shrink(script, fails));
+    }
+
+    /**
+     * Runs the script through every path, returning how the first one
+     * differing from the reference differs, null if none differ
+     */
+    static String check(List<String> script, Grid grid) {
+        String path = "reference";
+        try {
+            Recorder reference = new Recorder(true);
+            PacmanSimulator.runPacmanSimulator(script, grid, reference);
+            String expected = reference.fingerprint(true);
+            String console = console(script, grid, null);
+
+            path = "lexer";
+            String parsed = parse(script, grid);
+            if (!parsed.equals(reference.parsing())) {
+                return mismatch(path, parsed, reference.parsing());
+            }
+
+            path = "single pass";
+            Recorder result = new Recorder(false);
+            PacmanSimulator.runSinglePass(script, grid, result);
+            String actual = result.fingerprint(true);
+            if (!expected.equals(actual)) {
+                return mismatch(path, expected, actual);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            PacmanSimulator.runSinglePass(script, grid, new ConsoleListener(new PrintStream(out)));
+            actual = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+            if (!console.equals(actual)) {
+                return mismatch(path + " console", console, actual);
+            }
+
+            for (SimulationCache[] caches : Arrays.asList(SCENARIO_CACHES, PREFIX_CACHES)) {
+                SimulationCache cache = caches[index(grid)];
+                path = (caches == SCENARIO_CACHES ? "scenario" : "prefix") + " cache";
+                result = new Recorder(false);
+                PacmanSimulator.runPacmanSimulator(script, grid, result, cache);
+                actual = result.fingerprint(true);
+                if (!expected.equals(actual)) {
+                    return mismatch(path, expected, actual);
+                }
+                actual = console(script, grid, cache);
+                if (!console.equals(actual)) {
+                    return mismatch(path + " console", console, actual);
+                }
+            }
+
+            path = "compiled";
+            String execution = reference.execution();
+            actual = execute(PacmanSimulator.compile(script, grid), grid).execution();
+            if (!execution.equals(actual)) {
+                return mismatch(path, execution, actual);
+            }
+
+            path = "compressed";
+            actual = execute(PacmanSimulator.compile(script, grid).compress(), grid).execution();
+            if (!execution.equals(actual)) {
+                return mismatch(path, execution, actual);
+            }
+
+            path = "batch";
+            BatchRunner runner = RUNNERS.get()[index(grid)];
+            ByteBuffer line = ByteBuffer.allocate(BatchRunner.MAX_RESULT_SIZE);
+            runner.runScenario(ByteBuffer.wrap(String.join(":::", script).getBytes(StandardCharsets.US_ASCII)), 0,
+                    String.join(":::", script).length(), line);
+            actual = new String(line.array(), 0, line.position(), StandardCharsets.US_ASCII).trim();
+            if (!lastReport(reference).equals(actual)) {
+                return mismatch(path, lastReport(reference), actual);
+            }
+
+            // streaming skips blank lines and has no limit
+            path = "streaming";
+            List<String> lines = new ArrayList<String>();
+            for (String cmd : script) {
+                if (!cmd.trim().isEmpty()) {
+                    lines.add(cmd);
+                }
+            }
+            Recorder streamed = new Recorder(false);
+            PacmanSimulator.runPacmanSimulator(lines, grid, streamed);
+            expected = streamed.fingerprint(false);
+            result = new Recorder(false);
+            PacmanSimulator.runPacmanSimulator(new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.US_ASCII)), grid,
+                    result, 0);
+            actual = result.fingerprint(false);
+            if (!expected.equals(actual)) {
+                return mismatch(path, expected, actual);
+            }
+            return null;
+        } catch (Throwable e) {
+            return String.format("%s threw %s", path, e);
+        }
+    }
+
+    /**
+     * Parses the script with regular expressions, giving what the lexer
+     * should make of it in the same form as {@link Recorder#parsing()} -
+     * - the limit and missing PLACE or REPORT flags
+     * - each reason each rejected command is rejected for, in order
+     * - the valid commands, trimmed and in upper case
+     */
+    static String parse(List<String> script, Grid grid) {
+        boolean hasPlace = false, hasReport = false;
+        for (String cmd : script) {
+            hasPlace |= cmd.toUpperCase(Locale.ROOT).contains("PLACE");
+            hasReport |= cmd.trim().toUpperCase(Locale.ROOT).equals("REPORT");
+        }
+        List<String> rejected = new ArrayList<String>();
+        List<String> valid = new ArrayList<String>();
+        boolean isPlaced = false;
+        for (String cmd : script) {
+            String token = cmd.trim().toUpperCase(Locale.ROOT);
+            List<Rejection> reasons = reasons(token, isPlaced, grid);
+            if (reasons.isEmpty()) {
+                isPlaced = true;
+                valid.add(token);
+            }
+            for (Rejection reason : reasons) {
+                rejected.add(reason + " " + token);
+            }
+        }
+        return parsing(script.size() > PacmanSimulator.MAXIMUM_COMMANDS, !hasPlace, hasPlace && !hasReport, rejected, valid);
+    }
+
+    /**
+     * The reasons a trimmed, upper cased command is rejected for, none if it is valid
+     */
+    private static List<Rejection> reasons(String token, boolean isPlaced, Grid grid) {
+        List<Rejection> reasons = new ArrayList<Rejection>();
+        // with a ',' the name ends at the first space, otherwise it is the whole command
+        String name = token;
+        if (token.indexOf(',') >= 0) {
+            int space = token.indexOf(' ');
+            if (space < 0) {
+                reasons.add(Rejection.INVALID_COMMAND);
+                return reasons;
+            }
+            name = token.substring(0, space);
+        }
+        if (!COMMAND.matcher(name).matches()) {
+            if (name != token || !TURN.matcher(token).matches()) {
+                reasons.add(Rejection.INVALID_COMMAND);
+            } else if (!isPlaced) {
+                reasons.add(Rejection.NOT_PLACED);
+            }
+            return reasons;
+        }
+        if (!name.equals("PLACE")) {
+            if (!isPlaced) {
+                reasons.add(Rejection.NOT_PLACED);
+            }
+            return reasons;
+        }
+        String[] args = TRAILING_COMMAS.matcher(token.substring(name.length())).replaceFirst("").split(",", -1);
+        if (args.length != 3) {
+            reasons.add(Rejection.PLACE_USAGE);
+            if (args.length < 3) {
+                return reasons;
+            }
+        }
+        String x = args[0].trim(), y = args[1].trim(), dir = args[2].trim();
+        if (!NUMBER.matcher(x).matches() || !NUMBER.matcher(y).matches()) {
+            reasons.add(Rejection.PLACE_NOT_NUMERIC);
+        } else if (new BigInteger(x).compareTo(MAX_COORDINATE) > 0 || new BigInteger(y).compareTo(MAX_COORDINATE) > 0
+                || !grid.contains(Integer.parseInt(x), Integer.parseInt(y))) {
+            reasons.add(Rejection.PLACE_OUTSIDE_GRID);
+        } else if (grid.isWall(Integer.parseInt(x), Integer.parseInt(y))) {
+            reasons.add(Rejection.PLACE_ON_WALL);
+        }
+        if (!DIRECTION.matcher(dir).matches() || (DIAGONAL.matcher(dir).matches() && !grid.isDiagonal())) {
+            reasons.add(Rejection.PLACE_INVALID_DIRECTION);
+        }
+        return reasons;
+    }
+
+    private static String parsing(boolean limit, boolean missingPlace, boolean missingReport, List<String> rejected, List<String> valid) {
+        return String.format("limit=%s missing place=%s report=%s rejected=%s valid=%s", limit, missingPlace, missingReport, rejected, valid);
+    }
+
+    /**
+     * Console output of running the script, with the given cache if not null
+     */
+    private static String console(List<String> script, Grid grid, SimulationCache cache) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ConsoleListener listener = new ConsoleListener(new PrintStream(out));
+        if (cache == null) {
+            PacmanSimulator.runPacmanSimulator(script, grid, listener);
+        } else {
+            PacmanSimulator.runPacmanSimulator(script, grid, listener, cache);
+        }
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Shrinks a failing script, dropping runs of commands and then
+     * normalizing commands, as long as the script keeps failing
+     */
+    static List<String> shrink(List<String> script, Predicate<List<String>> fails) {
+        List<String> current = new ArrayList<String>(script);
+        boolean shrunk = true;
+        while (shrunk) {
+            shrunk = false;
+            for (int size = Math.max(current.size() / 2, 1); size >= 1; size /= 2) {
+                for (int at = 0; at + size <= current.size();) {
+                    List<String> candidate = new ArrayList<String>(current.subList(0, at));
+                    candidate.addAll(current.subList(at + size, current.size()));
+                    if (fails.test(candidate)) {
+                        current = candidate;
+                        shrunk = true;
+                    } else {
+                        at += size;
+                    }
+                }
+            }
+            for (int i = 0; i < current.size(); i++) {
+                String simpler = current.get(i).trim().toUpperCase();
+                if (!simpler.equals(current.get(i))) {
+                    List<String> candidate = new ArrayList<String>(current);
+                    candidate.set(i, simpler);
+                    if (fails.test(candidate)) {
+                        current = candidate;
+                        shrunk = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * A random script, mostly of valid commands, with some
+     * long ones to go over the limit and off the grid
+     */
+    static List<String> script(Random random, Grid grid) {
+        int length = random.nextInt(10) == 0 ? random.nextInt(200) : random.nextInt(45);
+        List<String> script = new ArrayList<String>(length);
+        for (int i = 0; i < length; i++) {
+            script.add(mutate(random, command(random, grid)));
+        }
+        return script;
+    }
+
+    private static String command(Random random, Grid grid) {
+        switch (random.nextInt(10)) {
+            case 0:
+            case 1:
+            case 2:
+                return "move";
+            case 3:
+                return "left";
+            case 4:
+                return "right";
+            case 5:
+                return "report";
+            case 6:
+                String amount = random.nextInt(5) == 0 ? BAD_NUMBERS[random.nextInt(BAD_NUMBERS.length)] : String.valueOf(random.nextInt(20));
+                return (random.nextBoolean() ? "left " : "right ") + amount;
+            default:
+                return String.format("place %s,%s,%s", coordinate(random, grid.getWidth()), coordinate(random, grid.getHeight()),
+                        DIRECTIONS[random.nextInt(DIRECTIONS.length)]);
+        }
+    }
+
+    private static String coordinate(Random random, int max) {
+        switch (random.nextInt(8)) {
+            case 0:
+                return BAD_NUMBERS[random.nextInt(BAD_NUMBERS.length)];
+            case 1:
+                return String.valueOf(max + 1L);
+            case 2:
+                return String.valueOf(max - random.nextInt(Math.min(max, 3) + 1));
+            default:
+                return String.valueOf(random.nextInt(Math.min(max, 6) + 1));
+        }
+    }
+
+    /**
+     * Changes the case and spacing of a command, or breaks it
+     */
+    private static String mutate(Random random, String cmd) {
+        switch (random.nextInt(16)) {
+            case 0:
+                StringBuilder sb = new StringBuilder(cmd);
+                for (int i = 0; i < sb.length(); i++) {
+                    if (random.nextBoolean()) {
+                        sb.setCharAt(i, Character.toUpperCase(sb.charAt(i)));
+                    }
+                }
+                return sb.toString();
+            case 1:
+                return cmd.toUpperCase();
+            case 2:
+                return cmd.replace(",", " , ");
+            case 3:
+                return " \t" + cmd + "  ";
+            case 4:
+                return cmd.replaceFirst(" ", "");
+            case 5:
+                return cmd.replaceFirst(",", "");
+            case 6:
+                return cmd + ",,";
+            case 7:
+                int at = random.nextInt(cmd.length() + 1);
+                return cmd.substring(0, at) + "x" + cmd.substring(at);
+            case 8:
+                return cmd.substring(0, random.nextInt(cmd.length() + 1));
+            case 9:
+                return random.nextBoolean() ? "" : " ";
+            default:
+                return cmd;
+        }
+    }
+
+    /**
+     * Everything a listener can tell about the outcome
+     */
+    private static String fingerprint(SimulationResult result, boolean withLimit) {
+        StringBuilder sb = new StringBuilder(execution(result));
+        for (Rejection reason : Rejection.values()) {
+            sb.append(reason).append('=').append(result.getRejections(reason)).append(' ');
+        }
+        sb.append(String.format("missing place=%s report=%s", result.isMissingPlace(), result.isMissingReport()));
+        if (withLimit) {
+            sb.append(" limit=").append(result.isLimitExceeded());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The outcome of executing the valid commands
+     */
+    private static String execution(SimulationResult result) {
+        return String.format("%scompleted=%s at [%d, %d, %s] off grid=%d ", result, result.isCompleted(), result.getFinalX(), result.getFinalY(),
+                result.getFinalDirection(), result.getRejections(Rejection.OFF_GRID));
+    }
+
+    private static Recorder execute(Program program, Grid grid) {
+        Recorder result = new Recorder(false);
+        if (!program.isEmpty()) {
+            Pacman pacman = new Pacman(grid, result);
+            pacman.run(program);
+            pacman.complete();
+        }
+        return result;
+    }
+
+    private static String lastReport(SimulationResult result) {
+        int last = result.getReportCount() - 1;
+        return last < 0 ? "Output: NONE"
+                : String.format("Output: %d, %d, %s", result.getReportX(last), result.getReportY(last), result.getReportDirection(last));
+    }
+
+    private static String mismatch(String path, String expected, String actual) {
+        return String.format("%s gave%n  %s%ninstead of%n  %s", path, actual, expected);
+    }
+
+    private static int index(Grid grid) {
+        for (int i = 0; i < GRIDS.length; i++) {
+            if (GRIDS[i] == grid) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(grid.toString());
+    }
+
+    private static BatchRunner[] runners() {
+        BatchRunner[] runners = new BatchRunner[GRIDS.length];
+        for (int i = 0; i < runners.length; i++) {
+            runners[i] = new BatchRunner(GRIDS[i]);
+        }
+        return runners;
+    }
+
+    private static SimulationCache[] caches(Mode mode) {
+        SimulationCache[] caches = new SimulationCache[GRIDS.length];
+        for (int i = 0; i < caches.length; i++) {
+            caches[i] = new SimulationCache(mode, Eviction.LRU, 512);
+        }
+        return caches;
+    }
+
+    private static void report(String what, long scripts, long commands, long startNanos) {
+        long millis = Math.max((System.nanoTime() - startNanos) / 1000000, 1);
+        System.err.println(String.format("%s %d scripts (%d commands) in %d ms, %d scripts/s", what, scripts, commands, millis, scripts * 1000 / millis));
+    }
+
+    /**
+     * Result which also records every ignored MOVE, one at a time so runs
+     * of them compare the same as single ones, and, when echoing, the
+     * rejected and valid commands
+     */
+    private static final class Recorder extends SimulationResult {
+
+        private final boolean echo;
+        private final StringBuilder ignored = new StringBuilder(" ignored=");
+        private final List<String> rejected = new ArrayList<String>();
+        private List<String> valid = new ArrayList<String>();
+
+        Recorder(boolean echo) {
+            this.echo = echo;
+        }
+
+        @Override
+        public boolean isEchoEnabled() {
+            return echo;
+        }
+
+        @Override
+        public void onRejected(Rejection reason, String token) {
+            super.onRejected(reason, token);
+            rejected.add(reason + " " + token);
+        }
+
+        @Override
+        public void onValidCommands(List<String> tokens) {
+            valid = tokens;
+        }
+
+        @Override
+        public void onIgnoredMove(Rejection reason, int index, int xpos, int ypos, Direction dir) {
+            super.onIgnoredMove(reason, index, xpos, ypos, dir);
+            ignored.append(String.format("%s %d at [%d, %d, %s], ", reason, index, xpos, ypos, dir));
+        }
+
+        @Override
+        public void onIgnoredMoves(Rejection reason, int index, int xpos, int ypos, Direction dir, int count) {
+            super.onIgnoredMoves(reason, index, xpos, ypos, dir, count);
+            for (int i = 0; i < count; i++) {
+                ignored.append(String.format("%s %d at [%d, %d, %s], ", reason, index, xpos, ypos, dir));
+            }
+        }
+
+        String fingerprint(boolean withLimit) {
+            return DifferentialFuzzTest.fingerprint(this, withLimit) + ignored;
+        }
+
+        String execution() {
+            return DifferentialFuzzTest.execution(this) + ignored;
+        }
+
+        String parsing() {
+            return DifferentialFuzzTest.parsing(isLimitExceeded(), isMissingPlace(), isMissingReport(), rejected, valid);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Unit tests for {@code com.ie.PacmanSimulator.Direction}
+ *
+ * @author sundeep
+ *
+ */
+public class DirectionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public final void testTurns() {
+        assertEquals(Direction.WEST, Direction.NORTH.turnLeft());
+        assertEquals(Direction.SOUTH, Direction.WEST.turnLeft());
+        assertEquals(Direction.EAST, Direction.SOUTH.turnLeft());
+        assertEquals(Direction.NORTH, Direction.EAST.turnLeft());
+        assertEquals(Direction.EAST, Direction.NORTH.turnRight());
+        assertEquals(Direction.NORTHWEST, Direction.NORTHEAST.turnLeft());
+        assertEquals(Direction.SOUTH, Direction.NORTH.turn(2, false));
+        assertEquals(Direction.WEST, Direction.NORTH.turn(-1, false));
+        assertEquals(Direction.NORTHEAST, Direction.NORTH.turn(1, true));
+        assertEquals(Direction.SOUTHWEST, Direction.NORTH.turn(-3, true));
+        for (Direction d : Direction.values()) {
+            assertEquals(d, d.turnLeft().turnRight());
+            assertEquals(d, d.turn(8, true));
+            assertEquals(d.isDiagonal(), Direction.DX[d.ordinal()] != 0 && Direction.DY[d.ordinal()] != 0);
+        }
+    }
+
+    @Test
+    public final void testTurnByAmount() {
+        SimulationResult result = simulate(Grid.DEFAULT, "place 1,1,north ::: left 3 ::: report ::: right 10 ::: report ::: RIGHT 0 ::: left ::: report");
+        assertEquals(Direction.EAST, result.getReportDirection(0));
+        assertEquals(Direction.WEST, result.getReportDirection(1));
+        assertEquals(Direction.SOUTH, result.getReportDirection(2));
+        assertEquals(1, simulate(Grid.DEFAULT, "left 3 ::: place 1,1,north ::: report").getRejections(Rejection.NOT_PLACED));
+        assertEquals(3, simulate(Grid.DEFAULT, "place 1,1,north ::: left x ::: left -1 ::: move 3 ::: report").getRejections(Rejection.INVALID_COMMAND));
+    }
+
+    @Test
+    public final void testDiagonalGrid() {
+        Grid grid = new Grid(5, 5, true);
+        SimulationResult result = simulate(grid, "place 0,0,northeast ::: move ::: move ::: left ::: move ::: right 2 ::: report ::: move ::: move ::: move ::: move ::: report");
+        assertEquals(2, result.getReportX(0));
+        assertEquals(3, result.getReportY(0));
+        assertEquals(Direction.EAST, result.getReportDirection(0));
+        assertEquals(5, result.getReportX(1));
+        assertEquals(3, result.getReportY(1));
+        assertEquals(1, result.getRejections(Rejection.OFF_GRID));
+
+        // a run of moves stops at the first edge reached
+        result = simulate(grid, "place 3,1,southeast ::: move ::: move ::: move ::: report");
+        assertEquals(4, result.getReportX(0));
+        assertEquals(0, result.getReportY(0));
+        assertEquals(2, result.getRejections(Rejection.OFF_GRID));
+
+        assertEquals(1, simulate(Grid.DEFAULT, "place 0,0,northeast ::: report").getRejections(Rejection.PLACE_INVALID_DIRECTION));
+        assertFalse(Grid.DEFAULT.isDiagonal());
+        assertTrue(Grid.DEFAULT.withDiagonals().isDiagonal());
+        assertFalse(Grid.DEFAULT.equals(Grid.DEFAULT.withDiagonals()));
+    }
+
+    @Test
+    public final void testSwarmTurns() {
+        Grid grid = new Grid(5, 5, true);
+        Swarm swarm = new Swarm(grid, false);
+        swarm.addAgent(PacmanSimulator.compile(cmds("place 2,2,north ::: right ::: left 4 ::: move"), grid));
+        swarm.run(new Swarm.Listener() {
+        });
+        assertEquals(Direction.SOUTHWEST, swarm.getDirection(0));
+        assertEquals(1, swarm.getX(0));
+        assertEquals(1, swarm.getY(0));
+    }
+
+    @Test
+    public final void testBatchTurnsAndDiagonals() throws Exception {
+        Path input = folder.newFile("scenarios.txt").toPath();
+        Files.write(input, ("place 1,1,north ::: left 3 ::: move ::: report\n"
+                + "place 1,1,northwest ::: move ::: report\n"
+                + "left 2 ::: place 1,1,south ::: right   5 ::: report\n").getBytes(StandardCharsets.US_ASCII));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BatchRunner().run(input, Channels.newChannel(out));
+        assertEquals("Output: 2, 1, EAST\nOutput: NONE\nOutput: 1, 1, WEST\n", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+
+        out.reset();
+        new BatchRunner(Grid.DEFAULT.withDiagonals()).run(input, Channels.newChannel(out));
+        assertEquals("Output: 0, 0, SOUTHWEST\nOutput: 0, 2, NORTHWEST\nOutput: 1, 1, NORTHEAST\n", new String(out.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
+    private SimulationResult simulate(Grid grid, String in) {
+        return PacmanSimulator.simulate(cmds(in), grid);
+    }
+
+    private List<String> cmds(String in) {
+        return Arrays.asList(in.split(":::"));
+    }
+}
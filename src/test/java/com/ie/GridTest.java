@@ -0,0 +1,216 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Unit tests for {@code com.ie.Grid}
+ *
+ * @author sundeep
+ *
+ */
+public class GridTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public final void testDefaultGridBoundsAreInclusive() {
+        assertTrue(Grid.DEFAULT.contains(0, 0));
+        assertTrue(Grid.DEFAULT.contains(5, 5));
+        assertFalse(Grid.DEFAULT.contains(6, 5));
+        assertFalse(Grid.DEFAULT.contains(5, -1));
+        assertFalse(Grid.DEFAULT.contains(Integer.MIN_VALUE, 0));
+    }
+
+    @Test
+    public final void testLargestGrid() {
+        Grid grid = new Grid(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertTrue(grid.contains(Integer.MAX_VALUE, 0));
+        assertFalse(grid.contains(Integer.MAX_VALUE + 1, 0));
+
+        SimulationResult result = simulate(grid, "place 2147483646,0,east ::: move ::: move ::: report");
+        assertEquals(Integer.MAX_VALUE, result.getReportX(0));
+        assertEquals(1, result.getRejections(Rejection.OFF_GRID));
+    }
+
+    @Test
+    public final void testNonSquareGrid() {
+        Grid grid = Grid.valueOf("10x2");
+        assertEquals(10, grid.getWidth());
+        assertEquals(2, grid.getHeight());
+
+        SimulationResult result = simulate(grid, "place 7,1,north ::: move ::: move ::: right ::: move ::: move ::: move ::: move ::: report");
+        assertEquals(10, result.getReportX(0));
+        assertEquals(2, result.getReportY(0));
+        assertEquals(Direction.EAST, result.getReportDirection(0));
+        assertEquals(2, result.getRejections(Rejection.OFF_GRID));
+        assertEquals(1, simulate(grid, "place 3,3,north ::: report").getRejections(Rejection.PLACE_OUTSIDE_GRID));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testNegativeSize() {
+        new Grid(-1, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testInvalidSize() {
+        Grid.valueOf("10");
+    }
+
+    @Test
+    public final void testMap() {
+        Grid grid = Grid.map(
+                "..#",
+                ".#.",
+                "...");
+        assertEquals(2, grid.getWidth());
+        assertEquals(2, grid.getHeight());
+        assertTrue(grid.isWall(2, 2));
+        assertTrue(grid.isWall(1, 1));
+        assertFalse(grid.isWall(0, 2));
+        assertFalse(grid.isOpen(1, 1));
+        assertFalse(grid.isOpen(3, 0));
+        assertTrue(grid.isOpen(0, 0));
+        assertEquals(2, grid.getWallCount());
+        assertEquals("2x2 with 2 walls", grid.toString());
+        assertEquals(grid, Grid.map("..#", ".#.", "..."));
+        assertEquals(grid.hashCode(), Grid.map("..#", ".#.", "...").hashCode());
+        assertNotEquals(grid, new Grid(2, 2));
+        assertNotEquals(grid, Grid.map("..#", "...", "..."));
+        assertEquals(new Grid(2, 2), Grid.map("...", "...", "..."));
+        assertTrue(grid.withDiagonals().isWall(1, 1));
+    }
+
+    @Test
+    public final void testWalls() {
+        Grid grid = Grid.map(
+                "..#",
+                ".#.",
+                "...");
+        SimulationResult result = simulate(grid, "place 0,0,north ::: move ::: move ::: right ::: move ::: move ::: place 1,1,north ::: report");
+        assertEquals(1, result.getReportX(0));
+        assertEquals(2, result.getReportY(0));
+        assertEquals(1, result.getRejections(Rejection.WALL));
+        assertEquals(1, result.getRejections(Rejection.PLACE_ON_WALL));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PacmanSimulator.runPacmanSimulator(Arrays.asList("PLACE 1,1,NORTH", "PLACE 0,1,EAST", "MOVE", "REPORT"), grid,
+                new ConsoleListener(new PrintStream(out), false));
+        String output = out.toString();
+        assertTrue(output, output.contains("Co-ordinates [1, 1] are on a wall. Ignoring PLACE command"));
+        assertTrue(output, output.contains("Ignoring commmand 2.MOVE at [0, 1, EAST] as Pacman runs into a wall at [1, 1]"));
+    }
+
+    @Test
+    public final void testCompressedMovesStopAtWalls() {
+        Random random = new Random(37);
+        Grid grid = randomMap(random, 150, 7, 0.05);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder sb = new StringBuilder(String.format("place %d,%d,east", random.nextInt(151), random.nextInt(8)));
+            for (int n = random.nextInt(200); n > 0; n--) {
+                sb.append(random.nextInt(4) == 0 ? " ::: left" : " ::: move");
+            }
+            sb.append(" ::: report");
+            Program program = PacmanSimulator.compile(Arrays.asList(sb.toString().split(":::")), grid);
+            if (program.isEmpty()) {
+                continue;
+            }
+            SimulationResult stepped = run(program, grid);
+            SimulationResult compressed = run(program.compress(), grid);
+            assertEquals(stepped.toString(), compressed.toString());
+            assertEquals(stepped.getRejections(Rejection.WALL), compressed.getRejections(Rejection.WALL));
+            assertEquals(stepped.getRejections(Rejection.OFF_GRID), compressed.getRejections(Rejection.OFF_GRID));
+        }
+    }
+
+    @Test
+    public final void testClearance() {
+        Random random = new Random(41);
+        Grid grid = randomMap(random, 200, 50, 0.02);
+        for (int i = 0; i < 5000; i++) {
+            int x = random.nextInt(201), y = random.nextInt(51);
+            int d = random.nextInt(8);
+            int dx = Direction.DX[d], dy = Direction.DY[d];
+            int room = 0;
+            while (room < 300 && grid.contains(x + dx * (room + 1), y + dy * (room + 1))) {
+                room++;
+            }
+            int expected = 0;
+            while (expected < room && !grid.isWall(x + dx * (expected + 1), y + dy * (expected + 1))) {
+                expected++;
+            }
+            assertEquals(String.format("%d,%d,%s", x, y, Direction.values()[d]), expected, grid.clearance(x, y, dx, dy, room));
+        }
+    }
+
+    @Test
+    public final void testLoadAndSaveMaps() throws Exception {
+        Path ascii = folder.newFile().toPath();
+        Files.write(ascii, Arrays.asList("#....", "..#..", "....#", ""), StandardCharsets.US_ASCII);
+        Grid grid = Grid.load(ascii);
+        assertEquals(Grid.map("#....", "..#..", "....#"), grid);
+
+        Random random = new Random(43);
+        for (Grid map : Arrays.asList(grid, randomMap(random, 2000, 999, 0.1), new Grid(3, 3))) {
+            Path bitmap = folder.newFile().toPath();
+            map.save(bitmap);
+            assertEquals(Grid.MAP_HEADER_SIZE + ((map.getWidth() + 1L) * (map.getHeight() + 1L) + 63) / 64 * 8, Files.size(bitmap));
+            assertEquals(map, Grid.load(bitmap));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public final void testRaggedMap() throws Exception {
+        Path ascii = folder.newFile().toPath();
+        Files.write(ascii, Arrays.asList("...", "..", "..."), StandardCharsets.US_ASCII);
+        Grid.load(ascii);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testInvalidMapPosition() {
+        Grid.map("..", "x.");
+    }
+
+    private Grid randomMap(Random random, int width, int height, double walls) {
+        String[] rows = new String[height + 1];
+        for (int y = 0; y < rows.length; y++) {
+            StringBuilder row = new StringBuilder();
+            for (int x = 0; x <= width; x++) {
+                row.append(random.nextDouble() < walls ? '#' : '.');
+            }
+            rows[y] = row.toString();
+        }
+        return Grid.map(rows);
+    }
+
+    private SimulationResult run(Program program, Grid grid) {
+        SimulationResult result = new SimulationResult();
+        Pacman pacman = new Pacman(grid, result);
+        pacman.run(program);
+        pacman.complete();
+        return result;
+    }
+
+    private SimulationResult simulate(Grid grid, String in) {
+        return PacmanSimulator.simulate(Arrays.asList(in.split(":::")), grid);
+    }
+}
@@ -1,13 +1,23 @@
 package com.ie;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Scanner;
 import java.util.stream.Stream;
 
 import org.junit.After;
@@ -202,4 +212,130 @@ public class PacmanSimulatorTest {
         assertTrue(outContent.toString().trim().contains("Ignoring MOVE command before a valid PLACE command"));
         assertTrue(outContent.toString().trim().contains("Ignoring REPORT command before a valid PLACE command"));
     }
+
+    @Test
+    public final void testStreamingPositiveCase() throws Exception {
+        String in = "place 1,1,east\nmove\nreport\n\nmvoe\nleft\nmove\nreport\n";
+        PacmanSimulator.runPacmanSimulator(new ByteArrayInputStream(in.getBytes(StandardCharsets.UTF_8)), System.out, 0);
+        String out = outContent.toString();
+        assertTrue(out.contains("Output: 2, 1, EAST"));
+        assertTrue(out.contains("Ignoring invalid command : MVOE"));
+        assertTrue(out.contains("Output: 2, 2, NORTH"));
+        assertTrue(out.indexOf("Output: 2, 1, EAST") < out.indexOf("Ignoring invalid command : MVOE"));
+    }
+
+    @Test
+    public final void testStreamingMaximumCommands() throws Exception {
+        String in = "place 0,0,north\nmove\nmove\nreport\n";
+        PacmanSimulator.runPacmanSimulator(new ByteArrayInputStream(in.getBytes(StandardCharsets.UTF_8)), System.out, 3);
+        assertTrue(outContent.toString().contains("Exceeded maximum no of commands [3]"));
+        assertTrue(outContent.toString().contains("No REPORT command in input. Aborting processing..."));
+        assertFalse(outContent.toString().contains("Output:"));
+    }
+
+    @Test
+    public final void testStreamingNegativeCase() throws Exception {
+        String in = "test\nmove\nreport\n";
+        PacmanSimulator.runPacmanSimulator(Channels.newChannel(new ByteArrayInputStream(in.getBytes(StandardCharsets.UTF_8))), System.out, 0);
+        assertTrue(outContent.toString().contains("Ignoring invalid command : TEST"));
+        assertTrue(outContent.toString().contains("Ignoring MOVE command before a valid PLACE command"));
+        assertTrue(outContent.toString().contains("No PLACE command in input. Aborting processing.."));
+        assertTrue(outContent.toString().contains("Nothing to process. Aborting..."));
+    }
+
+    @Test
+    public final void testMalformedPlaceCommands() {
+        String in = "place ::: place 1,2 ::: place 1,,north ::: place1,2,north ::: place 99999999999,0,north ::: place 0,0,north ::: report";
+        List<String> cmds =  Arrays.asList(in.split(":::"));
+        PacmanSimulator.runPacmanSimulator(cmds);
+        assertTrue(outContent.toString().trim().contains("Invalid PLACE command. Usage: PLACE x,y,F"));
+        assertTrue(outContent.toString().trim().contains("Co-ordinates [1, ] are not numeric. Ignoring PLACE command"));
+        assertTrue(outContent.toString().trim().contains("Ignoring invalid command : PLACE1,2,NORTH"));
+        assertTrue(outContent.toString().trim().contains("Co-ordinates [99999999999, 0] are outside the grid. Ignoring PLACE command"));
+        assertTrue(outContent.toString().trim().contains("Output: 0, 0, NORTH"));
+    }
+
+    @Test
+    public final void testReadCommandsSameAsScanner() throws Exception {
+        String[] inputs = { "place 0,0,north\nmove\nreport\nmove\n", "\n\nplace 0,0,north\n  \n\t\nmove\n   \n\n", "move\r\nReport\r\n", "",
+            " \n\n ", "a\nb\nc\nd\n\n\ne\n", "a\n \n \n \nb" };
+        for (String in : inputs) {
+            for (int maxCommands : new int[] { 0, 2, 3 }) {
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                List<String> tokens = scan(in, maxCommands, new PrintStream(expected));
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                assertEquals(in, tokens, PacmanSimulator.readCommands(new BufferedReader(new StringReader(in)), maxCommands, new PrintStream(actual)));
+                assertEquals(in, expected.toString(), actual.toString());
+            }
+        }
+    }
+
+    @Test
+    public final void testParseOptions() {
+        PacmanSimulator.Options options = PacmanSimulator.Options.parse();
+        assertEquals(PacmanSimulator.Options.CONSOLE, options.mode);
+        assertEquals(PacmanSimulator.MAXIMUM_COMMANDS, options.maxCommands);
+        assertTrue(options.echo);
+
+        options = PacmanSimulator.Options.parse("--diagonal", "--stream", "--grid=7x3", "--checkpoint=p.ckpt", "--checkpoint-interval=5", "--metrics");
+        assertEquals(PacmanSimulator.Options.STREAM, options.mode);
+        assertEquals(0, options.maxCommands);
+        assertEquals(7, options.grid.getWidth());
+        assertEquals(3, options.grid.getHeight());
+        assertEquals("p.ckpt", options.checkpoint);
+        assertEquals(5, options.checkpointInterval);
+        assertTrue(options.diagonal);
+        assertTrue(options.metrics);
+
+        options = PacmanSimulator.Options.parse("--max-commands=4", "--stream");
+        assertEquals(4, options.maxCommands);
+
+        options = PacmanSimulator.Options.parse("--quiet", "--map=board.txt");
+        assertFalse(options.echo);
+        assertEquals("board.txt", options.map);
+
+        options = PacmanSimulator.Options.parse("--replay=a.trace");
+        assertEquals(PacmanSimulator.Options.REPLAY, options.mode);
+        assertEquals("a.trace", options.file);
+    }
+
+    @Test
+    public final void testParseInvalidOptions() {
+        String[][] invalid = { { "--strem" }, { "stream" }, { "--quiet=yes" }, { "--server=7070", "--stream" }, { "--batch=a", "--replay=b" },
+            { "--convert=a", "--server=1" }, { "--stream", "--stream" }, { "--grid=3x3", "--map=board.txt" }, { "--checkpoint=p.ckpt" },
+            { "--checkpoint-interval=5" }, { "--stream", "--checkpoint-interval=0" }, { "--quiet", "--batch=a" },
+            { "--max-commands=3", "--server=7070" }, { "--max-commands=-1" }, { "--max-commands=x" }, { "--server=70000" }, { "--batch" },
+            { "--grid=" }, { "--grid=3by3" } };
+        for (String[] args : invalid) {
+            try {
+                PacmanSimulator.Options.parse(args);
+                fail(Arrays.toString(args));
+            } catch (IllegalArgumentException e) {
+                assertFalse(Arrays.toString(args), e.getMessage().isEmpty());
+            }
+        }
+    }
+
+    /**
+     * Reads the commands with a Scanner, as the console used to
+     */
+    private List<String> scan(String in, int maxCommands, PrintStream out) {
+        List<String> tokens = new ArrayList<String>();
+        try (Scanner scanner = new Scanner(in)) {
+            while (scanner.hasNext()) {
+                if (maxCommands > 0 && tokens.size() >= maxCommands) {
+                    out.println(String.format("Exceeded maximum no of commands [%d]. Aborting user input. Continuing processing...", maxCommands));
+                    break;
+                }
+                String token = scanner.nextLine();
+                if (!token.isEmpty()) {
+                    tokens.add(token.toUpperCase());
+                }
+                if ("REPORT".equals(token.toUpperCase())) {
+                    break;
+                }
+            }
+        }
+        return tokens;
+    }
 }
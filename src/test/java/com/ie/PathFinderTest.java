@@ -0,0 +1,163 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+import com.ie.PathFinder.State;
+
+/**
+ * Unit tests for {@code com.ie.PathFinder}
+ *
+ * @author sundeep
+ *
+ */
+public class PathFinderTest {
+
+    @Test
+    public final void testSharedFindersBounded() {
+        Grid first = new Grid(3, 7);
+        PathFinder finder = PathFinder.of(first);
+        assertSame(finder, PathFinder.of(new Grid(3, 7)));
+        for (int i = 0; i < PathFinder.MAX_FINDERS; i++) {
+            PathFinder.of(new Grid(100 + i, 100));
+        }
+        assertNotSame(finder, PathFinder.of(first));
+    }
+
+    @Test
+    public final void testShortestPath() {
+        PathFinder finder = PathFinder.of(Grid.DEFAULT);
+        assertSame(finder, PathFinder.of(new Grid(5, 5)));
+        assertEquals(Arrays.asList(Command.MOVE, Command.MOVE), finder.shortestPath(state(0, 0, Direction.NORTH), state(0, 2, Direction.NORTH)));
+        assertEquals(2, finder.distance(state(0, 0, Direction.NORTH), state(0, 0, Direction.SOUTH)));
+        assertEquals(0, finder.distance(state(3, 3, Direction.WEST), state(3, 3, Direction.WEST)));
+        assertEquals(Arrays.asList("PLACE 0,0,NORTH", "MOVE", "RIGHT", "MOVE", "REPORT"),
+                finder.script(state(0, 0, Direction.NORTH), state(1, 1, Direction.EAST)));
+    }
+
+    @Test
+    public final void testScriptsReachTheTarget() {
+        assertScripts(PathFinder.of(Grid.DEFAULT), new Random(19), 5, 5);
+        assertScripts(PathFinder.of(new Grid(7, 4, true)), new Random(23), 7, 4);
+        assertScripts(PathFinder.of(new Grid(1000000000, 1000000000)), new Random(29), 1000000000, 1000000000);
+    }
+
+    @Test
+    public final void testSearchSameAsTables() {
+        for (Grid grid : Arrays.asList(Grid.DEFAULT, new Grid(6, 3, true), new Grid(0, 9), Grid.map("....#", ".##..", "...#.").withDiagonals())) {
+            PathFinder tables = new PathFinder(grid, true);
+            PathFinder search = new PathFinder(grid, false);
+            Random random = new Random(31);
+            for (int i = 0; i < 300; i++) {
+                State from = random(random, grid);
+                State to = random(random, grid);
+                assertEquals(from + " " + to, tables.distance(from, to), search.distance(from, to));
+                assertEquals(tables.shortestPath(from, to).size(), search.shortestPath(from, to).size());
+                int k = random.nextInt(6);
+                assertEquals(tables.reachable(from, k), search.reachable(from, k));
+            }
+        }
+    }
+
+    @Test
+    public final void testLargeGrid() {
+        Grid grid = new Grid(Integer.MAX_VALUE, Integer.MAX_VALUE, true);
+        PathFinder finder = PathFinder.of(grid);
+        State from = state(Integer.MAX_VALUE - 10, 5, Direction.WEST);
+        State to = state(Integer.MAX_VALUE - 200, 105, Direction.NORTHEAST);
+        List<Command> path = finder.shortestPath(from, to);
+        // 100 diagonal moves and 90 straight moves, with 2 turns before and 1 turn after
+        assertEquals(193, path.size());
+        assertSame(path, finder.shortestPath(from, to));
+        assertEquals(path.size(), finder.distance(from, to));
+    }
+
+    @Test
+    public final void testReachable() {
+        PathFinder finder = PathFinder.of(Grid.DEFAULT);
+        assertEquals(new HashSet<State>(Arrays.asList(state(0, 0, Direction.NORTH))), finder.reachable(state(0, 0, Direction.NORTH), 0));
+        assertEquals(new HashSet<State>(Arrays.asList(state(0, 0, Direction.NORTH), state(0, 1, Direction.NORTH), state(0, 0, Direction.EAST),
+                state(0, 0, Direction.WEST))), finder.reachable(state(0, 0, Direction.NORTH), 1));
+        assertEquals(6 * 6 * 4, finder.reachable(state(2, 2, Direction.SOUTH), 100).size());
+        assertEquals(1 + 3 + 6, PathFinder.of(new Grid(100000, 100000)).reachable(state(50000, 50000, Direction.EAST), 2).size());
+    }
+
+    @Test
+    public final void testWalls() {
+        Grid grid = Grid.map(
+                ".....",
+                "####.",
+                ".....",
+                ".###.",
+                ".#.#.",
+                ".###.");
+        for (PathFinder finder : Arrays.asList(new PathFinder(grid, true), new PathFinder(grid, false))) {
+            // around the end of the wall, and back along the other side
+            List<String> script = finder.script(state(0, 3, Direction.NORTH), state(0, 5, Direction.WEST));
+            assertEquals(15, script.size());
+            SimulationResult result = PacmanSimulator.simulate(script, grid);
+            assertEquals(0, result.getRejections(Rejection.WALL));
+            assertEquals(state(0, 5, Direction.WEST), state(result.getFinalX(), result.getFinalY(), result.getFinalDirection()));
+            // the walls enclose (2, 1)
+            assertNull(finder.shortestPath(state(0, 0, Direction.NORTH), state(2, 1, Direction.NORTH)));
+            assertEquals(-1, finder.distance(state(2, 1, Direction.NORTH), state(0, 0, Direction.NORTH)));
+            assertEquals(4, finder.reachable(state(2, 1, Direction.EAST), 10).size());
+            assertFalse(finder.reachable(state(0, 0, Direction.NORTH), 30).contains(state(2, 1, Direction.EAST)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testStateOnWall() {
+        PathFinder.of(Grid.map("..", "#.")).distance(state(0, 0, Direction.NORTH), state(1, 1, Direction.NORTH));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testStateOffGrid() {
+        PathFinder.of(Grid.DEFAULT).shortestPath(state(0, 0, Direction.NORTH), state(6, 0, Direction.NORTH));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testDiagonalStateOnGrid() {
+        PathFinder.of(Grid.DEFAULT).reachable(state(0, 0, Direction.NORTHEAST), 1);
+    }
+
+    private void assertScripts(PathFinder finder, Random random, int width, int height) {
+        Grid grid = finder.getGrid();
+        for (int i = 0; i < 100; i++) {
+            State from = random(random, grid);
+            // within 40 on each axis, so the searches on large grids stay short
+            int x = (int) Math.max(0, Math.min(width, from.getX() + random.nextInt(81) - 40L));
+            int y = (int) Math.max(0, Math.min(height, from.getY() + random.nextInt(81) - 40L));
+            State to = state(x, y, random(random, grid).getDirection());
+            SimulationResult result = PacmanSimulator.simulate(finder.script(from, to), grid);
+            assertEquals(to, state(result.getFinalX(), result.getFinalY(), result.getFinalDirection()));
+        }
+    }
+
+    private State random(Random random, Grid grid) {
+        int directions = grid.isDiagonal() ? 8 : 4;
+        int x, y;
+        do {
+            x = random.nextInt(grid.getWidth() + 1);
+            y = random.nextInt(grid.getHeight() + 1);
+        } while (grid.isWall(x, y));
+        return state(x, y, Direction.values()[random.nextInt(directions)]);
+    }
+
+    private State state(int x, int y, Direction dir) {
+        return new State(x, y, dir);
+    }
+}
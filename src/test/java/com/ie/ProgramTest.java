@@ -0,0 +1,90 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Unit tests for {@code com.ie.Program}
+ *
+ * @author sundeep
+ *
+ */
+public class ProgramTest {
+
+    @Test
+    public final void testCompressRuns() {
+        Program program = PacmanSimulator.compile(cmds("place 0,0,north ::: move ::: move ::: move ::: left ::: left ::: right ::: report ::: move"), Grid.DEFAULT);
+        assertEquals(9, program.size());
+        assertEquals(11, program.length());
+        assertFalse(program.isCompressed());
+
+        program.compress();
+        assertTrue(program.isCompressed());
+        assertEquals(9, program.size());
+        assertEquals(7, program.length());
+        int[] code = program.code();
+        assertEquals(Program.OP_MOVE_RUN, code[3] & Program.OP_MASK);
+        assertEquals(3, Program.runLength(code[3]));
+        assertEquals(Program.OP_TURN, code[4] & Program.OP_MASK);
+        assertEquals(3, Program.runLength(code[4]));
+        assertEquals(7, Program.rightTurns(code[4]));
+        assertEquals(Program.OP_MOVE_RUN, code[6] & Program.OP_MASK);
+        assertEquals(1, Program.runLength(code[6]));
+    }
+
+    @Test
+    public final void testLongRunsMatchStepByStep() {
+        Grid grid = new Grid(1000, 1000);
+        List<String> cmds = new ArrayList<String>();
+        cmds.add("place 10,20,east");
+        cmds.addAll(Collections.nCopies(5000, "move"));
+        cmds.addAll(Collections.nCopies(4001, "left"));
+        cmds.addAll(Collections.nCopies(30, "move"));
+        cmds.add("report");
+        cmds.addAll(Collections.nCopies(2000, "right"));
+        cmds.addAll(Collections.nCopies(1500, "move"));
+        cmds.add("report");
+
+        SimulationResult expected = new SimulationResult();
+        Pacman pacman = new Pacman(grid, expected);
+        pacman.run(PacmanSimulator.compile(cmds, grid));
+        pacman.complete();
+        SimulationResult result = PacmanSimulator.simulate(cmds, grid);
+
+        assertEquals(1000, result.getReportX(0));
+        assertEquals(50, result.getReportY(0));
+        assertEquals(Direction.NORTH, result.getReportDirection(0));
+        assertEquals(1000, result.getReportY(1));
+        assertEquals(expected.toString(), result.toString());
+        assertEquals(expected.getRejections(Rejection.OFF_GRID), result.getRejections(Rejection.OFF_GRID));
+        assertEquals(4010 + 550, result.getRejections(Rejection.OFF_GRID));
+    }
+
+    @Test
+    public final void testIgnoredMovesKeepTheirIndex() {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PacmanSimulator.runPacmanSimulator(cmds("place 4,4,north ::: move ::: move ::: move ::: left ::: left ::: move ::: report"),
+                new PrintStream(buf));
+        String out = buf.toString();
+        assertEquals(out.indexOf("Ignoring commmand 3.MOVE at [4, 5, NORTH]"), out.lastIndexOf("Ignoring commmand 3.MOVE at [4, 5, NORTH]") -
+                ("Ignoring commmand 3.MOVE at [4, 5, NORTH] as Pacman goes outside the grid[5x5]" + System.lineSeparator()).length());
+        assertTrue(out.contains("Output: 4, 4, SOUTH"));
+    }
+
+    private List<String> cmds(String in) {
+        return Arrays.asList(in.split(":::"));
+    }
+}
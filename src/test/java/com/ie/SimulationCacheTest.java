@@ -0,0 +1,166 @@
+package com.ie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.ie.SimulationCache.Eviction;
+import com.ie.SimulationCache.Mode;
+
+/**
+ * Unit tests for {@code com.ie.SimulationCache}
+ *
+ * @author sundeep
+ *
+ */
+public class SimulationCacheTest {
+
+    private static final String LONG = "place 0,0,north ::: move ::: move ::: move ::: move ::: move ::: move ::: report ::: right ::: move";
+
+    @Test
+    public final void testScenarioCache() throws Exception {
+        SimulationCache cache = new SimulationCache(2);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(run(LONG, null), run(LONG, cache));
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.size());
+
+        run("place 1,1,east ::: report", cache);
+        run("place 1,1,east ::: move ::: report", cache);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+        // the same valid commands with invalid ones in between hit the cache, the rejections are not cached
+        String out = run("place 1,1,east ::: jump ::: report", cache);
+        assertEquals(3, cache.getHits());
+        assertTrue(out.contains("Ignoring invalid command : JUMP"));
+    }
+
+    @Test
+    public final void testPrefixCache() throws Exception {
+        SimulationCache cache = new SimulationCache(Mode.PREFIX, Eviction.LRU, 1000);
+        String shorter = "place 0,0,north ::: move ::: move ::: move ::: move ::: move ::: move ::: report";
+        assertEquals(run(shorter, null), run(shorter, cache));
+        assertEquals(run(LONG, null), run(LONG, cache));
+        assertEquals(run(LONG + " ::: left ::: report", null), run(LONG + " ::: left ::: report", cache));
+        assertEquals(run(LONG, null), run(LONG, cache));
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getPartialHits());
+        assertEquals(1, cache.getHits());
+        // PLACE is 3 words, the other commands 1
+        assertEquals(14, cache.size());
+
+        assertEquals(run("place 0,0,south ::: report", null), run("place 0,0,south ::: report", cache));
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public final void testPrefixEviction() throws Exception {
+        SimulationCache cache = new SimulationCache(Mode.PREFIX, Eviction.LRU, 6);
+        assertEquals(run(LONG, null), run(LONG, cache));
+        // the end of the longest path is evicted first
+        assertEquals(6, cache.size());
+        assertEquals(6, cache.getEvictions());
+        assertEquals(run(LONG, null), run(LONG, cache));
+        assertEquals(1, cache.getPartialHits());
+
+        cache = new SimulationCache(Mode.PREFIX, Eviction.SIZE, 20);
+        assertEquals(run(LONG, null), run(LONG, cache));
+        assertTrue(cache.weight() <= 20);
+    }
+
+    @Test
+    public final void testProgramNotChanged() {
+        Program program = PacmanSimulator.compile(Arrays.asList(LONG.split(":::")), Grid.DEFAULT);
+        int[] code = Arrays.copyOf(program.code(), program.length());
+        for (Mode mode : Mode.values()) {
+            new SimulationCache(mode, Eviction.LRU, 100).execute(program, Grid.DEFAULT, new SimulationResult());
+            assertFalse(program.isCompressed());
+            assertArrayEquals(code, Arrays.copyOf(program.code(), program.length()));
+        }
+    }
+
+    @Test
+    public final void testEmptyRootsDropped() throws Exception {
+        SimulationCache cache = new SimulationCache(Mode.PREFIX, Eviction.LRU, 6);
+        for (int i = 1; i <= 5; i++) {
+            Grid grid = new Grid(i, i);
+            PacmanSimulator.runPacmanSimulator(Arrays.asList(LONG.split(":::")), grid, new SimulationResult(), cache);
+        }
+        // only the nodes of the latest grid fit
+        assertEquals(6, cache.size());
+        assertEquals(1, cache.grids());
+    }
+
+    @Test
+    public final void testSizeEviction() throws Exception {
+        SimulationCache cache = new SimulationCache(Mode.SCENARIO, Eviction.SIZE, 40);
+        for (int i = 0; i < 5; i++) {
+            run(String.format("place %d,0,north ::: move ::: report", i), cache);
+        }
+        assertTrue(cache.weight() <= 40);
+        assertTrue(cache.getEvictions() > 0);
+        assertEquals(5 - cache.getEvictions(), cache.size());
+    }
+
+    @Test
+    public final void testSharedBetweenThreads() throws Exception {
+        final List<String> scenarios = Files.readAllLines(Paths.get("src/test/resources/Pacman.txt"), StandardCharsets.US_ASCII);
+        final List<String> expected = new ArrayList<String>();
+        for (String scenario : scenarios) {
+            expected.add(run(scenario, null));
+        }
+        for (Mode mode : Mode.values()) {
+            final SimulationCache cache = new SimulationCache(mode, Eviction.LRU, 50);
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        for (int n = 0; n < 50; n++) {
+                            for (int i = 0; i < scenarios.size(); i++) {
+                                assertEquals(expected.get(i), run(scenarios.get(i), cache));
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+            pool.shutdown();
+            assertTrue(cache.getHits() > 0);
+        }
+    }
+
+    private String run(String scenario, SimulationCache cache) throws Exception {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(buf, true, "UTF-8");
+        List<String> cmds = Arrays.asList(scenario.split(":::"));
+        if (cache == null) {
+            PacmanSimulator.runPacmanSimulator(cmds, Grid.DEFAULT, new ConsoleListener(out));
+        } else {
+            PacmanSimulator.runPacmanSimulator(cmds, Grid.DEFAULT, new ConsoleListener(out), cache);
+        }
+        return buf.toString("UTF-8");
+    }
+}
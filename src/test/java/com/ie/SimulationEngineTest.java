@@ -0,0 +1,74 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@code com.ie.SimulationEngine}
+ *
+ * @author sundeep
+ *
+ */
+public class SimulationEngineTest {
+
+    @Test
+    public final void testOutputsInInputOrder() throws Exception {
+        List<List<String>> scenarios = new ArrayList<List<String>>();
+        for (int i = 0; i < 1000; i++) {
+            scenarios.add(Arrays.asList(String.format("place %d,%d,north ::: report", i % 6, (i / 6) % 6).split(":::")));
+        }
+        for (SimulationEngine.PoolType type : SimulationEngine.PoolType.values()) {
+            try (SimulationEngine engine = new SimulationEngine(type, 4)) {
+                List<String> outputs = engine.run(scenarios);
+                assertEquals(scenarios.size(), outputs.size());
+                for (int i = 0; i < outputs.size(); i++) {
+                    assertTrue(outputs.get(i).contains(String.format("Output: %d, %d, NORTH", i % 6, (i / 6) % 6)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public final void testSameOutputAsSequentialRun() throws IOException {
+        List<List<String>> scenarios = Files.lines(Paths.get("src/test/resources/Pacman.txt"))
+                .map(s -> Arrays.asList(s.split(":::")))
+                .collect(Collectors.toList());
+        try (SimulationEngine engine = new SimulationEngine()) {
+            List<String> outputs = engine.run(scenarios.stream());
+            for (int i = 0; i < scenarios.size(); i++) {
+                assertEquals(SimulationEngine.runScenario(scenarios.get(i)), outputs.get(i));
+            }
+        }
+    }
+
+    @Test
+    public final void testSimulateInInputOrder() {
+        List<List<String>> scenarios = new ArrayList<List<String>>();
+        for (int i = 0; i < 500; i++) {
+            scenarios.add(Arrays.asList(String.format("place 0,0,east ::: %s ::: report", i % 2 == 0 ? "move" : "left").split(":::")));
+        }
+        try (SimulationEngine engine = new SimulationEngine(SimulationEngine.PoolType.FORK_JOIN, 3)) {
+            List<SimulationResult> results = engine.simulate(scenarios.stream());
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0 ? 1 : 0, results.get(i).getReportX(0));
+                assertEquals(i % 2 == 0 ? PacmanSimulator.Direction.EAST : PacmanSimulator.Direction.NORTH,
+                        results.get(i).getReportDirection(0));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testInvalidParallelism() {
+        new SimulationEngine(SimulationEngine.PoolType.FIXED, 0);
+    }
+}
@@ -0,0 +1,140 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Rejection;
+import com.ie.SimulationMetrics.Histogram;
+import com.ie.SimulationMetrics.Stage;
+
+/**
+ * Unit tests for {@code com.ie.SimulationMetrics}
+ *
+ * @author sundeep
+ *
+ */
+public class SimulationMetricsTest {
+
+    private SimulationMetrics metrics;
+
+    @Before
+    public void setUp() {
+        SimulationMetrics.disable();
+        metrics = SimulationMetrics.enable();
+    }
+
+    @After
+    public void tearDown() {
+        SimulationMetrics.disable();
+    }
+
+    @Test
+    public final void testCountsCommandsAndRejections() {
+        PacmanSimulator.simulate(cmds("move ::: place 0,0,north ::: move ::: move ::: jump ::: left 2 ::: left ::: move ::: place 9,9,north ::: report"));
+        PacmanSimulator.simulate(cmds("place 0,0,south ::: move"));
+        assertEquals(2, metrics.getScenarios());
+        assertEquals(2, metrics.getCommands(Command.PLACE));
+        assertEquals(4, metrics.getCommands(Command.MOVE));
+        assertEquals(2, metrics.getCommands(Command.LEFT));
+        assertEquals(1, metrics.getCommands(Command.REPORT));
+        assertEquals(1, metrics.getRejections(Rejection.NOT_PLACED));
+        assertEquals(1, metrics.getRejections(Rejection.INVALID_COMMAND));
+        assertEquals(1, metrics.getRejections(Rejection.PLACE_OUTSIDE_GRID));
+        assertEquals(1, metrics.getRejections(Rejection.OFF_GRID));
+        assertEquals(1, metrics.getMissing(Command.REPORT));
+    }
+
+    @Test
+    public final void testStageLatency() {
+        for (int i = 0; i < 10; i++) {
+            PacmanSimulator.simulate(cmds("place 0,0,north ::: move ::: report"));
+        }
+        PacmanSimulator.simulate(cmds("jump"));
+        assertEquals(11, metrics.getLatency(Stage.PARSE).getCount());
+        assertEquals(11, metrics.getLatency(Stage.SANITIZE).getCount());
+        assertEquals(10, metrics.getLatency(Stage.EXECUTE).getCount());
+        assertEquals(1, metrics.getNothingToProcess());
+        Histogram execute = metrics.getLatency(Stage.EXECUTE);
+        assertTrue(execute.getPercentile(50) <= execute.getPercentile(99));
+        assertTrue(execute.getPercentile(100) >= execute.getMax());
+    }
+
+    @Test
+    public final void testStreamingAndCachedRuns() throws Exception {
+        PacmanSimulator.runPacmanSimulator(new ByteArrayInputStream("place 0,0,north\nmove\nleft 3\nreport\n".getBytes(StandardCharsets.UTF_8)),
+                new SimulationResult(), 0);
+        SimulationCache cache = new SimulationCache(10);
+        PacmanSimulator.simulate(cmds("place 0,0,west ::: move ::: report"), Grid.DEFAULT, cache);
+        PacmanSimulator.simulate(cmds("place 0,0,west ::: move ::: report"), Grid.DEFAULT, cache);
+        assertEquals(3, metrics.getScenarios());
+        assertEquals(3, metrics.getCommands(Command.MOVE));
+        assertEquals(1, metrics.getCommands(Command.LEFT));
+        // the ignored moves replayed from the cache are counted too
+        assertEquals(2, metrics.getRejections(Rejection.OFF_GRID));
+        assertEquals(2, metrics.getLatency(Stage.EXECUTE).getCount());
+    }
+
+    @Test
+    public final void testDisabled() {
+        SimulationMetrics.disable();
+        assertNull(SimulationMetrics.current());
+        PacmanSimulator.simulate(cmds("place 0,0,north ::: move ::: report"));
+        assertEquals(0, metrics.getScenarios());
+    }
+
+    @Test
+    public final void testExport() {
+        PacmanSimulator.simulate(cmds("place 0,0,north ::: move ::: report"));
+        final Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        final Map<String, Long> histograms = new LinkedHashMap<String, Long>();
+        metrics.export(new SimulationMetrics.Exporter() {
+            @Override
+            public void counter(String name, long value) {
+                counters.put(name, value);
+            }
+
+            @Override
+            public void histogram(String name, Histogram histogram) {
+                histograms.put(name, histogram.getCount());
+            }
+        });
+        assertEquals(Long.valueOf(1), counters.get("scenarios"));
+        assertEquals(Long.valueOf(1), counters.get("commands.MOVE"));
+        assertEquals(Long.valueOf(0), counters.get("rejections.OFF_GRID"));
+        assertEquals(Arrays.asList("latency.PARSE", "latency.SANITIZE", "latency.EXECUTE"), Arrays.asList(histograms.keySet().toArray()));
+        assertTrue(metrics.toString().contains("commands.REPORT 1"));
+    }
+
+    @Test
+    public final void testHistogramBuckets() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(1000);
+        histogram.record(1023);
+        assertEquals(1, histogram.getBucket(0));
+        assertEquals(1, histogram.getBucket(1));
+        assertEquals(2, histogram.getBucket(10));
+        assertEquals(1023, histogram.getPercentile(75));
+        assertEquals(1, histogram.getPercentile(50));
+        assertEquals(1023, histogram.getMax());
+        assertEquals(506, histogram.getMean());
+    }
+
+    private List<String> cmds(String in) {
+        return Arrays.asList(in.split(":::"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Unit tests for {@code com.ie.SimulationResult}
+ *
+ * @author sundeep
+ *
+ */
+public class SimulationResultTest {
+
+    @Test
+    public final void testReportsAndFinalPosition() {
+        SimulationResult result = simulate("place 1,1,east ::: move ::: report ::: left ::: move ::: report ::: move");
+        assertEquals(2, result.getReportCount());
+        assertEquals(2, result.getReportX(0));
+        assertEquals(1, result.getReportY(0));
+        assertEquals(Direction.EAST, result.getReportDirection(0));
+        assertEquals(2, result.getReportX(1));
+        assertEquals(2, result.getReportY(1));
+        assertEquals(Direction.NORTH, result.getReportDirection(1));
+        assertTrue(result.isCompleted());
+        assertEquals(2, result.getFinalX());
+        assertEquals(3, result.getFinalY());
+        assertEquals(Direction.NORTH, result.getFinalDirection());
+        assertEquals(String.format("Output: 2, 1, EAST%nOutput: 2, 2, NORTH%n"), result.toString());
+    }
+
+    @Test
+    public final void testRejections() {
+        SimulationResult result = simulate("test ::: move ::: place 6,6,north ::: place 1,2,NNN ::: place 4,4,north ::: move ::: move ::: move ::: report");
+        assertEquals(1, result.getRejections(Rejection.INVALID_COMMAND));
+        assertEquals(1, result.getRejections(Rejection.NOT_PLACED));
+        assertEquals(1, result.getRejections(Rejection.PLACE_OUTSIDE_GRID));
+        assertEquals(1, result.getRejections(Rejection.PLACE_INVALID_DIRECTION));
+        assertEquals(2, result.getRejections(Rejection.OFF_GRID));
+        assertEquals(4, result.getReportX(0));
+        assertEquals(5, result.getReportY(0));
+        assertFalse(result.isMissingPlace());
+        assertFalse(result.isMissingReport());
+    }
+
+    @Test
+    public final void testNothingProcessed() {
+        SimulationResult result = simulate("test ::: invalid :::");
+        assertTrue(result.isMissingPlace());
+        assertFalse(result.isCompleted());
+        assertNull(result.getFinalDirection());
+        assertEquals(0, result.getReportCount());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public final void testMissingReport() {
+        simulate("place 1,1,east ::: move").getReportX(0);
+    }
+
+    @Test
+    public final void testQuietConsoleListener() {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        List<String> cmds = Arrays.asList("place 0,0,north ::: mvoe ::: move ::: report".split(":::"));
+        PacmanSimulator.runPacmanSimulator(cmds, new ConsoleListener(new PrintStream(buf), false));
+        assertFalse(buf.toString().contains("List of valid commands"));
+        assertTrue(buf.toString().contains("Ignoring invalid command : MVOE"));
+        assertTrue(buf.toString().contains("Output: 0, 1, NORTH"));
+    }
+
+    private SimulationResult simulate(String in) {
+        return PacmanSimulator.simulate(Arrays.asList(in.split(":::")));
+    }
+}
@@ -0,0 +1,144 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@code com.ie.SimulatorServer}
+ *
+ * @author sundeep
+ *
+ */
+public class SimulatorServerTest {
+
+    private SimulatorServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new SimulatorServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), Grid.DEFAULT, 1 << 17);
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public final void testPipelinedScenarios() throws Exception {
+        List<String> scenarios = Files.readAllLines(Paths.get("src/test/resources/Pacman.txt"), StandardCharsets.US_ASCII);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new BatchRunner().run(Paths.get("src/test/resources/Pacman.txt"), Channels.newChannel(expected));
+
+        try (SocketChannel client = SocketChannel.open(server.getAddress())) {
+            client.write(frames(scenarios));
+            StringBuilder responses = new StringBuilder();
+            for (int i = 0; i < scenarios.size(); i++) {
+                responses.append(readFrame(client));
+            }
+            assertEquals(new String(expected.toByteArray(), StandardCharsets.US_ASCII), responses.toString());
+        }
+        assertEquals(scenarios.size(), server.getScenarios());
+    }
+
+    @Test
+    public final void testManyScenariosWithBackpressure() throws Exception {
+        final List<String> scenarios = new ArrayList<String>();
+        for (int i = 0; i < 50000; i++) {
+            scenarios.add(String.format("place %d,%d,north ::: move ::: right ::: report", i % 5, i % 4));
+        }
+        try (final SocketChannel client = SocketChannel.open(server.getAddress())) {
+            // the server stops reading while the responses are not read, so write on another thread
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ByteBuffer frames = frames(scenarios);
+                        while (frames.hasRemaining()) {
+                            client.write(frames);
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+            writer.start();
+            for (int i = 0; i < scenarios.size(); i++) {
+                assertEquals(String.format("Output: %d, %d, EAST\n", i % 5, i % 4 + 1), readFrame(client));
+            }
+            writer.join();
+        }
+    }
+
+    @Test
+    public final void testFrameLargerThanBuffer() throws Exception {
+        StringBuilder scenario = new StringBuilder("place 0,0,east");
+        for (int i = 0; i < 15000; i++) {
+            scenario.append(":::move");
+        }
+        scenario.append(":::report");
+        List<String> scenarios = new ArrayList<String>();
+        scenarios.add(scenario.toString());
+        scenarios.add("place 1,2,south ::: report");
+        try (SocketChannel client = SocketChannel.open(server.getAddress())) {
+            client.write(frames(scenarios));
+            assertEquals("Output: 5, 0, EAST\n", readFrame(client));
+            assertEquals("Output: 1, 2, SOUTH\n", readFrame(client));
+        }
+    }
+
+    @Test
+    public final void testOversizedFrameClosesConnection() throws Exception {
+        try (SocketChannel client = SocketChannel.open(server.getAddress())) {
+            ByteBuffer frame = ByteBuffer.allocate(4);
+            frame.putInt((1 << 17) + 1).flip();
+            client.write(frame);
+            assertEquals(-1, client.read(ByteBuffer.allocate(16)));
+        }
+    }
+
+    private static ByteBuffer frames(List<String> scenarios) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        for (String scenario : scenarios) {
+            byte[] payload = scenario.getBytes(StandardCharsets.UTF_8);
+            buf.write(payload.length >>> 24);
+            buf.write(payload.length >>> 16);
+            buf.write(payload.length >>> 8);
+            buf.write(payload.length);
+            buf.write(payload, 0, payload.length);
+        }
+        return ByteBuffer.wrap(buf.toByteArray());
+    }
+
+    private static String readFrame(SocketChannel client) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(4);
+        readFully(client, length);
+        ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+        readFully(client, payload);
+        return new String(payload.array(), StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(SocketChannel client, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (client.read(buf) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+    }
+}
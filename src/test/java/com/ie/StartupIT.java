@@ -0,0 +1,141 @@
+package com.ie;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Startup checks of the packaged jar, run by failsafe in the verify phase
+ * on JDK 13 and later -
+ * - dumps an AppCDS archive of the classes loaded running a short script,
+ *   which has a rejected command and a MOVE off the grid as well as a REPORT
+ * - fails if a Scanner, regular expression, Formatter, lambda or reflection
+ *   proxy class is loaded running the script
+ * - measures the time to the first REPORT, with and without the archive,
+ *   as the median of -Dstartup.runs runs, and fails if it is over
+ *   -Dstartup.budget.ms
+ *
+ * The times are written to startup.txt next to the archive, so they can
+ * be tracked from build to build.
+ *
+ * @author sundeep
+ *
+ */
+public class StartupIT {
+
+    private static final String JAR = System.getProperty("startup.jar");
+    private static final Path SCRIPT = Paths.get("src/test/resources/Startup.txt");
+    private static final Path ARCHIVE = Paths.get(System.getProperty("startup.archive", "target/pacman.jsa"));
+    private static final int RUNS = Integer.getInteger("startup.runs", 3);
+    private static final long BUDGET = Long.getLong("startup.budget.ms", 2000);
+    // Classes which should not be needed to run a short script
+    private static final String[] FORBIDDEN = { "java.util.Scanner", "java.util.regex.", "java.util.Formatter",
+        "java.lang.invoke.LambdaMetafactory", "java.lang.reflect.Proxy" };
+
+    @BeforeClass
+    public static void dumpArchive() throws Exception {
+        assumeTrue("Needs the packaged jar, given with -Dstartup.jar", JAR != null);
+        assumeTrue("Needs JDK 13 or later to dump an AppCDS archive", featureVersion() >= 13);
+        Files.deleteIfExists(ARCHIVE);
+        run("-XX:ArchiveClassesAtExit=" + ARCHIVE, "-jar", JAR);
+        assertTrue(String.format("No AppCDS archive was written to %s", ARCHIVE), Files.exists(ARCHIVE));
+    }
+
+    @Test
+    public final void testNoForbiddenClassesLoaded() throws Exception {
+        List<String> forbidden = new ArrayList<String>();
+        for (String line : run("-Xlog:class+load", "-jar", JAR)) {
+            for (String prefix : FORBIDDEN) {
+                if (line.contains(" " + prefix)) {
+                    forbidden.add(line);
+                }
+            }
+        }
+        assertTrue(String.format("Classes loaded which should not be needed: %s", forbidden), forbidden.isEmpty());
+    }
+
+    @Test
+    public final void testTimeToFirstReport() throws Exception {
+        long cold = median("-jar", JAR);
+        long warm = median("-XX:SharedArchiveFile=" + ARCHIVE, "-XX:TieredStopAtLevel=1", "-jar", JAR);
+        String report = String.format("time to first REPORT without archive: %d ms%ntime to first REPORT with archive: %d ms%nbudget: %d ms%n",
+                cold, warm, BUDGET);
+        Files.write(ARCHIVE.resolveSibling("startup.txt"), report.getBytes(StandardCharsets.US_ASCII));
+        System.out.print(report);
+        assertTrue(String.format("Time to first REPORT [%d ms] is over the budget [%d ms]", warm, BUDGET), warm <= BUDGET);
+    }
+
+    private static int featureVersion() {
+        String version = System.getProperty("java.specification.version");
+        return version.startsWith("1.") ? 1 : Integer.parseInt(version);
+    }
+
+    /**
+     * Median time, in ms, from starting the JVM to the first REPORT
+     */
+    private static long median(String... options) throws IOException, InterruptedException {
+        long[] times = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            times[i] = timeToReport(options);
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    private static long timeToReport(String... options) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = start(options);
+        long elapsed = -1;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (elapsed < 0 && line.startsWith("Output: ")) {
+                    elapsed = (System.nanoTime() - start) / 1000000;
+                }
+            }
+        }
+        if (process.waitFor() != 0 || elapsed < 0) {
+            throw new IllegalStateException(String.format("%s did not REPORT", Arrays.toString(options)));
+        }
+        return elapsed;
+    }
+
+    /**
+     * Runs the jar with the script as input, returning its output lines
+     */
+    private static List<String> run(String... options) throws IOException, InterruptedException {
+        Process process = start(options);
+        List<String> lines = new ArrayList<String>();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException(String.format("%s failed: %s", Arrays.toString(options), lines));
+        }
+        return lines;
+    }
+
+    private static Process start(String... options) throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(Arrays.asList(options));
+        return new ProcessBuilder(command).redirectInput(SCRIPT.toFile()).redirectErrorStream(true).start();
+    }
+}
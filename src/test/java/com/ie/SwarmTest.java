@@ -0,0 +1,146 @@
+package com.ie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ie.PacmanSimulator.Direction;
+import com.ie.PacmanSimulator.Rejection;
+
+/**
+ * Unit tests for {@code com.ie.Swarm}
+ *
+ * @author sundeep
+ *
+ */
+public class SwarmTest {
+
+    @Test
+    public final void testSameResultAsSingleSimulation() {
+        String[] scenarios = {
+            "place 0,0,north ::: move ::: report",
+            "PLACE 1,2,EAST ::: MOVE ::: MOVE ::: LEFT ::: MOVE ::: REPORT",
+            "place 1,1,east ::: move ::: move ::: left ::: right ::: move ::: move ::: left ::: place 3,4,south ::: move ::: left ::: left ::: move ::: report",
+            "place 4,4,north ::: move ::: move ::: left ::: left ::: move ::: move ::: report",
+        };
+        Swarm swarm = new Swarm(Grid.DEFAULT, false);
+        for (String scenario : scenarios) {
+            swarm.addAgent(PacmanSimulator.compile(cmds(scenario), Grid.DEFAULT));
+        }
+        final List<String> reports = new ArrayList<String>();
+        final int[] offGrid = new int[1];
+        int ticks = swarm.run(new Swarm.Listener() {
+            @Override
+            public void onReport(int agent, int xpos, int ypos, Direction dir) {
+                reports.add(String.format("%d: %d, %d, %s", agent, xpos, ypos, dir));
+            }
+
+            @Override
+            public void onIgnored(int agent, Rejection reason, int xpos, int ypos, Direction dir) {
+                offGrid[0]++;
+            }
+        });
+        assertEquals(14, ticks);
+        assertEquals(Arrays.asList("0: 0, 1, NORTH", "1: 3, 3, NORTH", "3: 4, 3, SOUTH", "2: 3, 4, NORTH"), reports);
+        assertEquals(1, offGrid[0]);
+        for (int i = 0; i < scenarios.length; i++) {
+            SimulationResult result = PacmanSimulator.simulate(cmds(scenarios[i]));
+            assertEquals(result.getFinalX(), swarm.getX(i));
+            assertEquals(result.getFinalY(), swarm.getY(i));
+            assertEquals(result.getFinalDirection(), swarm.getDirection(i));
+        }
+    }
+
+    @Test
+    public final void testCollisions() {
+        Swarm swarm = new Swarm(Grid.DEFAULT, true);
+        swarm.addAgent(PacmanSimulator.compile(cmds("place 1,1,east ::: left ::: move"), Grid.DEFAULT));
+        swarm.addAgent(PacmanSimulator.compile(cmds("place 0,1,east ::: move ::: move ::: move"), Grid.DEFAULT));
+        swarm.addAgent(PacmanSimulator.compile(cmds("place 0,1,north ::: move"), Grid.DEFAULT));
+        final int[] collisions = new int[1];
+        swarm.run(new Swarm.Listener() {
+            @Override
+            public void onIgnored(int agent, Rejection reason, int xpos, int ypos, Direction dir) {
+                assertEquals(Rejection.COLLISION, reason);
+                collisions[0]++;
+            }
+        });
+        // agent 1 is blocked by agent 0 until it moves away, agent 2 can not be placed on agent 1
+        assertEquals(2, collisions[0]);
+        assertEquals(1, swarm.getX(0));
+        assertEquals(2, swarm.getY(0));
+        assertEquals(2, swarm.getX(1));
+        assertEquals(1, swarm.getY(1));
+        assertNull(swarm.getDirection(2));
+        assertTrue(swarm.isOccupied(1, 2));
+        assertTrue(swarm.isOccupied(2, 1));
+        assertFalse(swarm.isOccupied(0, 1));
+    }
+
+    @Test
+    public final void testPlaceOnOwnCell() {
+        String scenario = "place 0,0,north ::: place 0,0,east ::: report";
+        Swarm swarm = new Swarm(Grid.DEFAULT, true);
+        swarm.addAgent(PacmanSimulator.compile(cmds(scenario), Grid.DEFAULT));
+        final List<Rejection> ignored = new ArrayList<Rejection>();
+        swarm.run(new Swarm.Listener() {
+            @Override
+            public void onIgnored(int agent, Rejection reason, int xpos, int ypos, Direction dir) {
+                ignored.add(reason);
+            }
+        });
+        SimulationResult result = PacmanSimulator.simulate(cmds(scenario));
+        assertTrue(ignored.isEmpty());
+        assertEquals(result.getFinalDirection(), swarm.getDirection(0));
+        assertEquals(Direction.EAST, swarm.getDirection(0));
+        assertTrue(swarm.isOccupied(0, 0));
+    }
+
+    @Test
+    public final void testWalls() {
+        Grid grid = Grid.map(
+                "...",
+                ".#.",
+                "...");
+        Swarm swarm = new Swarm(grid, true);
+        swarm.addAgent(PacmanSimulator.compile(cmds("place 0,1,east ::: move ::: left ::: move ::: right ::: move ::: move ::: move"), grid));
+        final List<Rejection> ignored = new ArrayList<Rejection>();
+        swarm.run(new Swarm.Listener() {
+            @Override
+            public void onIgnored(int agent, Rejection reason, int xpos, int ypos, Direction dir) {
+                ignored.add(reason);
+            }
+        });
+        assertEquals(Arrays.asList(Rejection.WALL, Rejection.OFF_GRID), ignored);
+        assertEquals(2, swarm.getX(0));
+        assertEquals(2, swarm.getY(0));
+    }
+
+    @Test
+    public final void testManyAgents() {
+        Grid grid = new Grid(1998, 1999);
+        Swarm swarm = new Swarm(grid, true, 100000);
+        for (int i = 0; i < 100000; i++) {
+            swarm.addAgent(PacmanSimulator.compile(cmds(String.format("place %d,%d,north ::: move ::: right ::: move", (i % 1000) * 2, (i / 1000) * 2)), grid));
+        }
+        assertEquals(4, swarm.run(new Swarm.Listener() {
+        }));
+        assertEquals(1, swarm.getX(0));
+        assertEquals(1, swarm.getY(0));
+        assertEquals(Direction.EAST, swarm.getDirection(0));
+        // the agent at the east edge can not move further east
+        assertEquals(1998, swarm.getX(999));
+        assertEquals(1, swarm.getY(999));
+    }
+
+    private List<String> cmds(String in) {
+        return Arrays.asList(in.split(":::"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.ie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@code com.ie.TraceReader}
+ *
+ * @author sundeep
+ *
+ */
+public class TraceReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public final void testSeek() throws Exception {
+        Path trace = trace(1000);
+        List<int[]> programs = new ArrayList<int[]>();
+        Program program = new Program();
+        try (TraceReader reader = new TraceReader(trace)) {
+            while (reader.next(program)) {
+                programs.add(Arrays.copyOf(program.code(), program.length()));
+            }
+            assertEquals(1000, programs.size());
+            Random random = new Random(17);
+            for (int i = 0; i < 200; i++) {
+                int scenario = random.nextInt(programs.size());
+                reader.seek(scenario);
+                reader.next(program);
+                assertArrayEquals(programs.get(scenario), Arrays.copyOf(program.code(), program.length()));
+            }
+            reader.seek(programs.size());
+            assertFalse(reader.next(program));
+        }
+    }
+
+    @Test
+    public final void testSmallWindows() throws Exception {
+        Path trace = trace(300);
+        Program program = new Program();
+        List<int[]> programs = new ArrayList<int[]>();
+        try (TraceReader reader = new TraceReader(trace)) {
+            while (reader.next(program)) {
+                programs.add(Arrays.copyOf(program.code(), program.length()));
+            }
+        }
+        for (int windowSize : new int[] { 1, 7, 64 }) {
+            try (TraceReader reader = new TraceReader(trace, windowSize)) {
+                for (int[] expected : programs) {
+                    reader.next(program);
+                    assertArrayEquals(expected, Arrays.copyOf(program.code(), program.length()));
+                }
+                assertFalse(reader.next(program));
+                reader.seek(150);
+                reader.next(program);
+                assertArrayEquals(programs.get(150), Arrays.copyOf(program.code(), program.length()));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public final void testNotATrace() throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, "place 0,0,north ::: move ::: report ::: and some more text\n".getBytes(StandardCharsets.US_ASCII));
+        new TraceReader(file).close();
+    }
+
+    @Test(expected = IOException.class)
+    public final void testTruncatedTrace() throws Exception {
+        Path trace = trace(100);
+        byte[] bytes = Files.readAllBytes(trace);
+        Files.write(trace, Arrays.copyOf(bytes, bytes.length - 1));
+        new TraceReader(trace).close();
+    }
+
+    @Test(expected = IOException.class)
+    public final void testReplayOnAnotherGrid() throws Exception {
+        new BatchRunner(new Grid(10, 10)).replay(trace(10), Channels.newChannel(new ByteArrayOutputStream()));
+    }
+
+    @Test
+    public final void testReplayOnMap() throws Exception {
+        Grid grid = Grid.map(
+                "....#.",
+                ".#....",
+                "......",
+                "..##..",
+                "......",
+                "#....#");
+        Path text = folder.newFile().toPath();
+        String scenarios = TraceWriterTest.randomScenarios(new Random(47), 500);
+        Files.write(text, scenarios.getBytes(StandardCharsets.US_ASCII));
+        Path trace = folder.newFile().toPath();
+        TraceWriter.convert(text, trace, grid);
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        new BatchRunner(grid).run(text, Channels.newChannel(batch));
+        ByteArrayOutputStream replay = new ByteArrayOutputStream();
+        new BatchRunner(grid).replay(trace, Channels.newChannel(replay));
+        assertEquals(batch.toString("US-ASCII"), replay.toString("US-ASCII"));
+        try {
+            new BatchRunner(new Grid(5, 5)).replay(trace, Channels.newChannel(new ByteArrayOutputStream()));
+            fail("Replayed a trace of a map without its walls");
+        } catch (IOException e) {
+            assertEquals(String.format("Trace %s is for a 5x5 grid with walls, not 5x5", trace), e.getMessage());
+        }
+    }
+
+    private Path trace(int scenarios) throws IOException {
+        Path text = folder.newFile().toPath();
+        Files.write(text, TraceWriterTest.randomScenarios(new Random(scenarios), scenarios).getBytes(StandardCharsets.US_ASCII));
+        Path trace = folder.newFile().toPath();
+        TraceWriter.convert(text, trace, Grid.DEFAULT);
+        return trace;
+    }
+}
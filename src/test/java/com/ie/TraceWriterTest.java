@@ -0,0 +1,135 @@
+package com.ie;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ie.PacmanSimulator.Command;
+import com.ie.PacmanSimulator.Direction;
+
+/**
+ * Unit tests for {@code com.ie.TraceWriter}, converting scenario files
+ * into traces and replaying them
+ *
+ * @author sundeep
+ *
+ */
+public class TraceWriterTest {
+
+    private static final String[] COMMANDS = { "move", "move", "move", "left", "right", "report", "left 3", "jump", "place 1,2,north",
+        "place 4,4,west", "place 9,9,north", "place 0,0,up" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public final void testReplayScenarioFile() throws Exception {
+        assertSameAsBatch(Paths.get("src/test/resources/Pacman.txt"), Grid.DEFAULT);
+    }
+
+    @Test
+    public final void testReplayRandomScenarios() throws Exception {
+        Path text = folder.newFile("scenarios.txt").toPath();
+        Files.write(text, randomScenarios(new Random(11), 3000).getBytes(StandardCharsets.US_ASCII));
+        assertSameAsBatch(text, Grid.DEFAULT);
+        assertSameAsBatch(text, new Grid(1000000, 1000000, true));
+    }
+
+    @Test
+    public final void testSize() throws Exception {
+        Path text = folder.newFile("scenarios.txt").toPath();
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(13);
+        for (int i = 0; i < 2000; i++) {
+            sb.append(String.format("place %d,%d,north", random.nextInt(5), random.nextInt(5)));
+            for (int n = 0; n < 20; n++) {
+                sb.append(" ::: ").append(COMMANDS[random.nextInt(6)]);
+            }
+            sb.append('\n');
+        }
+        Files.write(text, sb.toString().getBytes(StandardCharsets.US_ASCII));
+        Path trace = folder.getRoot().toPath().resolve("scenarios.trace");
+        assertEquals(2000, TraceWriter.convert(text, trace, Grid.DEFAULT));
+        assertTrue(Files.size(trace) * 10 < Files.size(text));
+    }
+
+    @Test
+    public final void testProgramRoundTrip() throws Exception {
+        Program program = new Program();
+        program.place(1234567, 0, Direction.SOUTHWEST);
+        program.emit(Command.MOVE);
+        program.emit(Command.LEFT);
+        program.turn(Command.RIGHT, 5);
+        program.turn(Command.LEFT, -3);
+        program.turn(Command.LEFT, 0);
+        program.emit(Command.RIGHT);
+        program.emit(Command.REPORT);
+        program.place(Integer.MAX_VALUE, 7, Direction.NORTH);
+        Path trace = folder.getRoot().toPath().resolve("program.trace");
+        Grid grid = new Grid(Integer.MAX_VALUE, Integer.MAX_VALUE, true);
+        try (FileChannel out = FileChannel.open(trace, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE); TraceWriter writer = new TraceWriter(out, grid)) {
+            writer.write(program);
+            writer.write(new Program());
+        }
+        try (TraceReader reader = new TraceReader(trace)) {
+            assertEquals(grid, reader.getGrid());
+            assertEquals(2, reader.getScenarios());
+            Program read = new Program();
+            assertTrue(reader.next(read));
+            assertArrayEquals(Arrays.copyOf(program.code(), program.length()), Arrays.copyOf(read.code(), read.length()));
+            for (Command cmd : Command.values()) {
+                assertEquals(program.count(cmd), read.count(cmd));
+            }
+            assertTrue(reader.next(read));
+            assertTrue(read.isEmpty());
+            assertFalse(reader.next(read));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testCompressedProgram() throws Exception {
+        Program program = new Program();
+        program.emit(Command.MOVE);
+        program.emit(Command.MOVE);
+        new TraceWriter(Channels.newChannel(new ByteArrayOutputStream()), Grid.DEFAULT).write(program.compress());
+    }
+
+    static String randomScenarios(Random random, int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int length = random.nextInt(40);
+            for (int n = 0; n < length; n++) {
+                sb.append(n == 0 ? "" : " ::: ").append(COMMANDS[random.nextInt(COMMANDS.length)]);
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private void assertSameAsBatch(Path text, Grid grid) throws Exception {
+        Path trace = folder.getRoot().toPath().resolve("replay.trace");
+        TraceWriter.convert(text, trace, grid);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        long scenarios = new BatchRunner(grid).run(text, Channels.newChannel(expected));
+        ByteArrayOutputStream replayed = new ByteArrayOutputStream();
+        assertEquals(scenarios, new BatchRunner(grid).replay(trace, Channels.newChannel(replayed)));
+        assertEquals(expected.toString("US-ASCII"), replayed.toString("US-ASCII"));
+    }
+}